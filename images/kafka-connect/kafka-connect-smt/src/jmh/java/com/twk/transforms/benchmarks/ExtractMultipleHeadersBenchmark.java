@@ -0,0 +1,70 @@
+package com.twk.transforms.benchmarks;
+
+import com.twk.transforms.ExtractMultipleHeaders;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ExtractMultipleHeadersBenchmark {
+
+    private static final int RECORD_COUNT = 1024;
+
+    @Param({"2", "16"})
+    public int headerCount;
+
+    @Param({"8", "64"})
+    public int fieldCount;
+
+    @Param({"true", "false"})
+    public boolean wrapValue;
+
+    private ExtractMultipleHeaders<SourceRecord> transform;
+    private SourceRecord[] records;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+
+        StringBuilder headers = new StringBuilder("id,trace,payload-type");
+        for (int i = 0; i < headerCount; i++) {
+            headers.append(",h").append(i);
+        }
+
+        Map<String, String> props = new HashMap<>();
+        props.put("headers.to.extract", headers.toString());
+        props.put("headers.rename.mapping", "id:EventId,payload-type:EventType");
+        props.put("wrap.value", Boolean.toString(wrapValue));
+        transform = new ExtractMultipleHeaders<>();
+        transform.configure(props);
+
+        records = new SourceRecord[RECORD_COUNT];
+        Struct value = SyntheticRecords.eventStruct(random, fieldCount, 16);
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            records[i] = SyntheticRecords.routedRecord(random, value.schema(), value, headerCount);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        transform.close();
+    }
+
+    @Benchmark
+    public SourceRecord apply() {
+        SourceRecord record = records[next];
+        next = (next + 1) & (RECORD_COUNT - 1);
+        return transform.apply(record);
+    }
+}
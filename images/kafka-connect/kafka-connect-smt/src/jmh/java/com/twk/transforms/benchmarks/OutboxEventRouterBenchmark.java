@@ -0,0 +1,85 @@
+package com.twk.transforms.benchmarks;
+
+import com.twk.transforms.OutboxEventRouter;
+import io.confluent.kafka.schemaregistry.avro.AvroSchema;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.testutil.MockSchemaRegistry;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-record cost of routing outbox rows, against an in-memory Schema Registry. Schemas are
+ * warmed up during setup so the measurement covers the steady state, not registry latency.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class OutboxEventRouterBenchmark {
+
+    private static final int RECORD_COUNT = 1024;
+
+    @Param({"8", "64"})
+    public int fieldCount;
+
+    @Param({"0", "2"})
+    public int nesting;
+
+    @Param({"16", "256"})
+    public int stringLength;
+
+    @Param({"1", "50"})
+    public int topicCount;
+
+    private final String scope = "bench-" + UUID.randomUUID();
+    private OutboxEventRouter<SourceRecord> router;
+    private SourceRecord[] records;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        SchemaRegistryClient registry = MockSchemaRegistry.getClientForScope(scope);
+        Random random = new Random(42);
+
+        StringBuilder subjects = new StringBuilder();
+        for (int t = 0; t < topicCount; t++) {
+            String subject = "topic" + t + "-value";
+            registry.register(subject, new AvroSchema(SyntheticRecords.avroSchema("Event" + t, fieldCount, nesting)));
+            subjects.append(t > 0 ? "," : "").append(subject);
+        }
+
+        Map<String, String> props = new HashMap<>();
+        props.put("schema.registry.url", "mock://" + scope);
+        props.put("schema.warmup.subjects", subjects.toString());
+        router = new OutboxEventRouter<>();
+        router.configure(props);
+
+        records = new SourceRecord[RECORD_COUNT];
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            int t = i % topicCount;
+            String payload = SyntheticRecords.jsonPayload(random, fieldCount, nesting, stringLength);
+            records[i] = SyntheticRecords.outboxRecord(random, "topic" + t, "Event" + t, payload);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        router.close();
+        MockSchemaRegistry.dropScope(scope);
+    }
+
+    @Benchmark
+    public SourceRecord apply() {
+        SourceRecord record = records[next];
+        next = (next + 1) & (RECORD_COUNT - 1);
+        return router.apply(record);
+    }
+}
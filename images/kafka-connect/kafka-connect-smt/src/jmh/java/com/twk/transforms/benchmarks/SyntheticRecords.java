@@ -0,0 +1,138 @@
+package com.twk.transforms.benchmarks;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.header.ConnectHeaders;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Deterministic generators for the records the SMTs see in production: Debezium outbox rows with
+ * a JSON payload, and routed records carrying headers. Shape is controlled by field count,
+ * nesting depth, string length and header count.
+ */
+final class SyntheticRecords {
+
+    static final Schema OUTBOX_SCHEMA = SchemaBuilder.struct().name("Outbox")
+            .field("Id", Schema.STRING_SCHEMA)
+            .field("Topic", Schema.STRING_SCHEMA)
+            .field("Key", Schema.OPTIONAL_STRING_SCHEMA)
+            .field("PayloadType", Schema.STRING_SCHEMA)
+            .field("Payload", Schema.STRING_SCHEMA)
+            .field("Trace", Schema.OPTIONAL_STRING_SCHEMA)
+            .build();
+
+    private static final String[] FIELD_TYPES = {"string", "long", "double", "boolean", "nullable-string"};
+
+    private SyntheticRecords() {
+    }
+
+    /**
+     * Avro schema of an event with {@code fieldCount} scalar fields and, per nesting level, one
+     * child record plus an array of strings.
+     */
+    static String avroSchema(String name, int fieldCount, int nesting) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"type\":\"record\",\"name\":\"").append(name).append("\",\"namespace\":\"com.twk.bench\",\"fields\":[");
+        for (int i = 0; i < fieldCount; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"name\":\"f").append(i).append("\",\"type\":");
+            switch (FIELD_TYPES[i % FIELD_TYPES.length]) {
+                case "string": json.append("\"string\""); break;
+                case "long": json.append("\"long\""); break;
+                case "double": json.append("\"double\""); break;
+                case "boolean": json.append("\"boolean\""); break;
+                default: json.append("[\"null\",\"string\"],\"default\":null"); break;
+            }
+            json.append('}');
+        }
+        if (nesting > 0) {
+            json.append(",{\"name\":\"tags\",\"type\":{\"type\":\"array\",\"items\":\"string\"}}");
+            json.append(",{\"name\":\"child\",\"type\":").append(avroSchema(name + "Child", fieldCount, nesting - 1)).append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * A JSON document matching {@link #avroSchema(String, int, int)}.
+     */
+    static String jsonPayload(Random random, int fieldCount, int nesting, int stringLength) {
+        StringBuilder json = new StringBuilder();
+        appendObject(json, random, fieldCount, nesting, stringLength);
+        return json.toString();
+    }
+
+    private static void appendObject(StringBuilder json, Random random, int fieldCount, int nesting, int stringLength) {
+        json.append('{');
+        for (int i = 0; i < fieldCount; i++) {
+            if (i > 0) json.append(',');
+            json.append("\"f").append(i).append("\":");
+            switch (FIELD_TYPES[i % FIELD_TYPES.length]) {
+                case "long": json.append(random.nextLong()); break;
+                case "double": json.append(random.nextDouble() * 1000); break;
+                case "boolean": json.append(random.nextBoolean()); break;
+                default: json.append('"').append(text(random, stringLength)).append('"'); break;
+            }
+        }
+        if (nesting > 0) {
+            json.append(",\"tags\":[\"").append(text(random, 8)).append("\",\"").append(text(random, 8)).append("\"]");
+            json.append(",\"child\":");
+            appendObject(json, random, fieldCount, nesting - 1, stringLength);
+        }
+        json.append('}');
+    }
+
+    static SourceRecord outboxRecord(Random random, String topic, String payloadType, String payload) {
+        Struct row = new Struct(OUTBOX_SCHEMA)
+                .put("Id", new UUID(random.nextLong(), random.nextLong()).toString())
+                .put("Topic", topic)
+                .put("Key", "key-" + random.nextInt(10_000))
+                .put("PayloadType", payloadType)
+                .put("Payload", payload)
+                .put("Trace", "00-" + text(random, 32) + "-" + text(random, 16) + "-01");
+        return new SourceRecord(null, null, "outbox.dbo.Outbox", random.nextInt(4), OUTBOX_SCHEMA, row);
+    }
+
+    /**
+     * A routed record as the header-based SMTs see it: an event Struct plus the router's headers
+     * ("id", "trace", "payload-type") and {@code extraHeaders} more ("h0", "h1", ...).
+     */
+    static SourceRecord routedRecord(Random random, Schema valueSchema, Struct value, int extraHeaders) {
+        ConnectHeaders headers = new ConnectHeaders();
+        headers.addString("id", new UUID(random.nextLong(), random.nextLong()).toString());
+        headers.addString("trace", text(random, 32));
+        headers.addString("payload-type", "OrderCreated");
+        for (int i = 0; i < extraHeaders; i++) {
+            headers.addString("h" + i, text(random, 12));
+        }
+        return new SourceRecord(null, null, "orders", 0, Schema.OPTIONAL_STRING_SCHEMA, "key", valueSchema, value, null, headers);
+    }
+
+    /**
+     * A flat event Struct with {@code fieldCount} string and long fields.
+     */
+    static Struct eventStruct(Random random, int fieldCount, int stringLength) {
+        SchemaBuilder builder = SchemaBuilder.struct().name("com.twk.bench.Event");
+        for (int i = 0; i < fieldCount; i++) {
+            builder.field("f" + i, i % 2 == 0 ? Schema.STRING_SCHEMA : Schema.INT64_SCHEMA);
+        }
+        Schema schema = builder.build();
+
+        Struct struct = new Struct(schema);
+        for (int i = 0; i < fieldCount; i++) {
+            struct.put("f" + i, i % 2 == 0 ? text(random, stringLength) : (Object) random.nextLong());
+        }
+        return struct;
+    }
+
+    static String text(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,54 @@
+package com.twk.transforms.benchmarks;
+
+import com.twk.transforms.UpdateProcessedAt;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class UpdateProcessedAtBenchmark {
+
+    private static final int RECORD_COUNT = 1024;
+
+    @Param({"0", "16"})
+    public int headerCount;
+
+    private UpdateProcessedAt<SourceRecord> transform;
+    private SourceRecord[] records;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+
+        transform = new UpdateProcessedAt<>();
+        transform.configure(Collections.emptyMap());
+
+        records = new SourceRecord[RECORD_COUNT];
+        Struct value = SyntheticRecords.eventStruct(random, 8, 16);
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            records[i] = SyntheticRecords.routedRecord(random, value.schema(), value, headerCount);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        transform.close();
+    }
+
+    @Benchmark
+    public SourceRecord apply() {
+        SourceRecord record = records[next];
+        next = (next + 1) & (RECORD_COUNT - 1);
+        return transform.apply(record);
+    }
+}
@@ -2,9 +2,11 @@ package com.twk.transforms;
 
 import org.apache.kafka.common.config.ConfigDef;
 import org.apache.kafka.connect.connector.ConnectRecord;
+import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaBuilder;
 import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
 import org.apache.kafka.connect.transforms.Transformation;
 import org.apache.kafka.connect.transforms.util.SimpleConfig;
 
@@ -13,46 +15,109 @@ import java.util.Map;
 public class ExtractHeader<R extends ConnectRecord<R>> implements Transformation<R> {
     private static final String HEADER_NAME_CONFIG = "header.name";
     private static final String TARGET_FIELD_CONFIG = "target.field";
+    private static final String MODE_CONFIG = "mode";
+    private static final String SCHEMA_CACHE_MAX_SIZE_CONFIG = "schema.cache.max.size";
 
-    private static final ConfigDef CONFIG_DEF = new ConfigDef()
+    private static final String MODE_REPLACE = "replace";
+    private static final String MODE_MERGE = "merge";
+
+    private static final ConfigDef CONFIG_DEF = TransformMetrics.addConfig(new ConfigDef()
             .define(HEADER_NAME_CONFIG, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, "Kafka header name to extract")
-            .define(TARGET_FIELD_CONFIG, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, "Target field name in the record");
+            .define(TARGET_FIELD_CONFIG, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, "Target field name in the record")
+            .define(MODE_CONFIG, ConfigDef.Type.STRING, MODE_REPLACE, ConfigDef.ValidString.in(MODE_REPLACE, MODE_MERGE), ConfigDef.Importance.MEDIUM,
+                    "'replace' makes the value a struct holding only the target field, 'merge' adds the target field to the existing value struct")
+            .define(SCHEMA_CACHE_MAX_SIZE_CONFIG, ConfigDef.Type.INT, 16, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, "Maximum number of input value schemas to keep output schemas for"));
 
     private String headerName;
     private String targetField;
+    private boolean merge;
+    private SchemaIdentityCache<OutputLayout> layouts; // Output schema per input value schema
+    private final HeaderValues headerValues = new HeaderValues(HeaderValues.DEFAULT_INTERN_CACHE_SIZE);
+    private TransformMetrics metrics;
 
     @Override
     public void configure(Map<String, ?> configs) {
         SimpleConfig config = new SimpleConfig(CONFIG_DEF, configs);
         headerName = config.getString(HEADER_NAME_CONFIG);
         targetField = config.getString(TARGET_FIELD_CONFIG);
+        merge = MODE_MERGE.equals(config.getString(MODE_CONFIG));
+        layouts = new SchemaIdentityCache<>(config.getInt(SCHEMA_CACHE_MAX_SIZE_CONFIG));
+        metrics = new TransformMetrics("ExtractHeader", config);
     }
 
     @Override
     public R apply(R record) {
-        if (record.headers().lastWithName(headerName) == null) {
-            return record; // No header found, return as-is
-        }
+        return metrics.apply(record, this::transform);
+    }
 
-        String headerValue = record.headers().lastWithName(headerName).value().toString();
+    private R transform(R record) {
+        String headerValue = headerValues.asString(record.headers().lastWithName(headerName));
+        if (headerValue == null || (merge && record.value() == null)) {
+            return record; // No header found or nothing to merge into, return as-is
+        }
 
-        // Add extracted header to the record value
-        Schema updatedSchema = SchemaBuilder.struct()
-                .name(record.valueSchema().name())
-                .field(targetField, Schema.STRING_SCHEMA) // Set dynamically named field
-                .build();
+        OutputLayout layout = layouts.computeIfAbsent(record.valueSchema(), this::buildLayout);
 
-        Struct updatedValue = new Struct(updatedSchema)
-                .put(targetField, headerValue); // Assign extracted header value
+        Struct updatedValue = new Struct(layout.schema);
+        if (merge) {
+            // Carry the existing fields over by position
+            Struct value = (Struct) record.value();
+            for (int i = 0; i < layout.copiedFields.length; i++) {
+                updatedValue.put(layout.copiedFields[i], value.get(layout.sourceFields[i]));
+            }
+        }
+        updatedValue.put(layout.targetField, headerValue); // Assign extracted header value
 
         return record.newRecord(
                 record.topic(), record.kafkaPartition(),
                 record.keySchema(), record.key(),
-                updatedSchema, updatedValue,
+                layout.schema, updatedValue,
                 record.timestamp(), record.headers()
         );
     }
 
+    private OutputLayout buildLayout(Schema inputSchema) {
+        if (!merge) {
+            Schema schema = SchemaBuilder.struct()
+                    .name(inputSchema != null ? inputSchema.name() : null)
+                    .field(targetField, Schema.STRING_SCHEMA) // Set dynamically named field
+                    .build();
+            return new OutputLayout(schema, new Field[0], new Field[0], schema.field(targetField));
+        }
+
+        if (inputSchema == null || inputSchema.type() != Schema.Type.STRUCT) {
+            throw new DataException("ExtractHeader mode 'merge' requires a struct value with a schema");
+        }
+
+        // Same schema plus the target field, which replaces an existing field of that name
+        SchemaBuilder builder = SchemaBuilder.struct()
+                .name(inputSchema.name())
+                .version(inputSchema.version())
+                .doc(inputSchema.doc());
+        if (inputSchema.isOptional()) {
+            builder.optional();
+        }
+        if (inputSchema.parameters() != null) {
+            builder.parameters(inputSchema.parameters());
+        }
+        for (Field field : inputSchema.fields()) {
+            if (!field.name().equals(targetField)) {
+                builder.field(field.name(), field.schema());
+            }
+        }
+        builder.field(targetField, Schema.STRING_SCHEMA);
+        Schema schema = builder.build();
+
+        Field[] sourceFields = inputSchema.fields().stream()
+                .filter(field -> !field.name().equals(targetField))
+                .toArray(Field[]::new);
+        Field[] copiedFields = new Field[sourceFields.length];
+        for (int i = 0; i < sourceFields.length; i++) {
+            copiedFields[i] = schema.field(sourceFields[i].name());
+        }
+        return new OutputLayout(schema, sourceFields, copiedFields, schema.field(targetField));
+    }
+
     @Override
     public ConfigDef config() {
         return CONFIG_DEF;
@@ -60,6 +125,28 @@ public class ExtractHeader<R extends ConnectRecord<R>> implements Transformation
 
     @Override
     public void close() {
-        // No-op
+        if (layouts != null) {
+            layouts.clear();
+        }
+        if (metrics != null) {
+            metrics.close();
+        }
+    }
+
+    /**
+     * Output schema for one input schema, with the fields to copy resolved up front.
+     */
+    private static final class OutputLayout {
+        final Schema schema;
+        final Field[] sourceFields;
+        final Field[] copiedFields;
+        final Field targetField;
+
+        OutputLayout(Schema schema, Field[] sourceFields, Field[] copiedFields, Field targetField) {
+            this.schema = schema;
+            this.sourceFields = sourceFields;
+            this.copiedFields = copiedFields;
+            this.targetField = targetField;
+        }
     }
-}
\ No newline at end of file
+}
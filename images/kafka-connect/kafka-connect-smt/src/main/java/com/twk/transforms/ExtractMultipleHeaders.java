@@ -1,12 +1,13 @@
 package com.twk.transforms;
 
 import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.connect.connector.ConnectRecord;
 import org.apache.kafka.connect.data.*;
 import org.apache.kafka.connect.header.Header;
+import org.apache.kafka.connect.header.Headers;
 import org.apache.kafka.connect.transforms.Transformation;
 import org.apache.kafka.connect.transforms.util.SimpleConfig;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -17,19 +18,46 @@ public class ExtractMultipleHeaders<R extends ConnectRecord<R>> implements Trans
     private static final String HEADER_RENAME_MAPPING_CONFIG = "headers.rename.mapping";
     private static final String WRAP_VALUE_CONFIG = "wrap.value";
     private static final String PAYLOAD_FIELD_NAME_CONFIG = "payload.field.name";
-
-    private static final ConfigDef CONFIG_DEF = new ConfigDef()
+    private static final String HEADER_TYPES_CONFIG = "headers.types";
+    private static final String HEADER_INTERN_CACHE_SIZE_CONFIG = "header.intern.cache.size";
+    private static final String PAYLOAD_FORMAT_CONFIG = "payload.format";
+    private static final String SCHEMA_CACHE_MAX_SIZE_CONFIG = "schema.cache.max.size";
+    private static final String PAYLOAD_TEMPORAL_FORMAT_CONFIG = "payload.temporal.format";
+
+    private static final String PAYLOAD_FORMAT_JSON = "json";
+    private static final String PAYLOAD_FORMAT_STRUCT = "struct";
+    private static final String TEMPORAL_FORMAT_EPOCH_MILLIS = "epoch-millis";
+    private static final String TEMPORAL_FORMAT_ISO = "iso-8601";
+
+    private static final ConfigDef CONFIG_DEF = TransformMetrics.addConfig(new ConfigDef()
             .define(HEADERS_TO_EXTRACT_CONFIG, ConfigDef.Type.LIST, ConfigDef.Importance.HIGH, "Comma-separated list of headers to extract")
             .define(HEADER_RENAME_MAPPING_CONFIG, ConfigDef.Type.STRING, "", ConfigDef.Importance.MEDIUM, "Mapping of header names (e.g., 'id:EventId,source:SourceTopic')")
+            .define(HEADER_TYPES_CONFIG, ConfigDef.Type.STRING, "", ConfigDef.Importance.MEDIUM,
+                    "Types to extract headers as, by header name (e.g., 'id:uuid,sequence:long'); others are strings. Long headers become optional INT64 fields, UUIDs optional canonical strings")
+            .define(HEADER_INTERN_CACHE_SIZE_CONFIG, ConfigDef.Type.INT, HeaderValues.DEFAULT_INTERN_CACHE_SIZE, ConfigDef.Range.atLeast(0), ConfigDef.Importance.LOW,
+                    "Number of decoded byte[] header values to reuse, for low-cardinality headers such as payload-type (0 = off)")
             .define(WRAP_VALUE_CONFIG, ConfigDef.Type.BOOLEAN, false, ConfigDef.Importance.MEDIUM, "Wrap original value inside a custom field (true/false)")
-            .define(PAYLOAD_FIELD_NAME_CONFIG, ConfigDef.Type.STRING, "Payload", ConfigDef.Importance.MEDIUM, "Custom name for the wrapped payload field");
+            .define(PAYLOAD_FIELD_NAME_CONFIG, ConfigDef.Type.STRING, "Payload", ConfigDef.Importance.MEDIUM, "Custom name for the wrapped payload field")
+            .define(PAYLOAD_FORMAT_CONFIG, ConfigDef.Type.STRING, PAYLOAD_FORMAT_JSON,
+                    ConfigDef.ValidString.in(PAYLOAD_FORMAT_JSON, PAYLOAD_FORMAT_STRUCT), ConfigDef.Importance.MEDIUM,
+                    "How the payload field holds the original value: 'json' serialises it to a JSON string, 'struct' nests it unchanged with its own schema (schemaless values still become JSON)")
+            .define(PAYLOAD_TEMPORAL_FORMAT_CONFIG, ConfigDef.Type.STRING, TEMPORAL_FORMAT_EPOCH_MILLIS,
+                    ConfigDef.ValidString.in(TEMPORAL_FORMAT_EPOCH_MILLIS, TEMPORAL_FORMAT_ISO), ConfigDef.Importance.LOW,
+                    "How JSON payloads write Date, Time and Timestamp values: 'epoch-millis' numbers (milliseconds of the day for Time) or 'iso-8601' strings")
+            .define(SCHEMA_CACHE_MAX_SIZE_CONFIG, ConfigDef.Type.INT, 16, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, "Maximum number of input value schemas to keep output schemas for"));
 
     private List<String> headersToExtract;
     private Map<String, String> headerRenameMap;
     private boolean wrapValue;
     private String payloadFieldName;
-    private Schema cachedSchema = null; // Schema caching for performance
-    private static final ObjectMapper objectMapper = new ObjectMapper(); // JSON Serializer
+    private boolean structuredPayload;
+    private boolean isoTemporals;
+    private String[] headerSlots; // Header read into each output field, in output field order
+    private String[] fieldSlots;
+    private HeaderValues.Type[] typeSlots;
+    private HeaderValues headerValues;
+    private SchemaIdentityCache<OutputLayout> layouts; // Output schema per input value schema
+    private TransformMetrics metrics;
 
     @Override
     public void configure(Map<String, ?> configs) {
@@ -37,6 +65,8 @@ public class ExtractMultipleHeaders<R extends ConnectRecord<R>> implements Trans
         headersToExtract = config.getList(HEADERS_TO_EXTRACT_CONFIG);
         wrapValue = config.getBoolean(WRAP_VALUE_CONFIG);
         payloadFieldName = config.getString(PAYLOAD_FIELD_NAME_CONFIG);
+        structuredPayload = PAYLOAD_FORMAT_STRUCT.equals(config.getString(PAYLOAD_FORMAT_CONFIG));
+        isoTemporals = TEMPORAL_FORMAT_ISO.equals(config.getString(PAYLOAD_TEMPORAL_FORMAT_CONFIG));
 
         // Parse header rename mappings (e.g., "id:EventId,source:SourceTopic")
         String renameMappings = config.getString(HEADER_RENAME_MAPPING_CONFIG);
@@ -44,74 +74,118 @@ public class ExtractMultipleHeaders<R extends ConnectRecord<R>> implements Trans
         if (!renameMappings.isEmpty()) {
             headerRenameMap = parseRenameMappings(renameMappings);
         }
-    }
 
-    @Override
-    public R apply(R record) {
-        if (record == null || record.value() == null) {
-            return record;
-        }
-
-        // Extract specified headers dynamically and apply renaming if configured
-        Map<String, String> extractedHeaders = new HashMap<>();
+        // Fix the header-to-field order once; a field mapped from several headers takes the last one
+        Map<String, String> headerByField = new LinkedHashMap<>();
         for (String headerName : headersToExtract) {
-            String fieldName = headerRenameMap.getOrDefault(headerName, headerName); // Use mapped name if available
-            extractedHeaders.put(fieldName, extractHeaderValue(record, headerName));
+            headerByField.put(headerRenameMap.getOrDefault(headerName, headerName), headerName); // Use mapped name if available
         }
-
-        // Convert Struct (Payload) to JSON if needed
-        String payloadString;
-        if (record.value() instanceof Struct) {
+        fieldSlots = headerByField.keySet().toArray(new String[0]);
+        headerSlots = headerByField.values().toArray(new String[0]);
+
+        // Resolve each slot's type (e.g., "id:uuid,sequence:long")
+        Map<String, String> headerTypes = parseRenameMappings(config.getString(HEADER_TYPES_CONFIG));
+        typeSlots = new HeaderValues.Type[headerSlots.length];
+        for (int i = 0; i < headerSlots.length; i++) {
+            String type = headerTypes.get(headerSlots[i]);
             try {
-                payloadString = objectMapper.writeValueAsString(structToMap((Struct) record.value()));
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to convert Struct to JSON", e);
+                typeSlots[i] = type != null ? HeaderValues.Type.forName(type) : HeaderValues.Type.STRING;
+            } catch (IllegalArgumentException e) {
+                throw new ConfigException(HEADER_TYPES_CONFIG, config.getString(HEADER_TYPES_CONFIG), e.getMessage());
             }
-        } else {
-            payloadString = record.value().toString();
         }
+        headerValues = new HeaderValues(config.getInt(HEADER_INTERN_CACHE_SIZE_CONFIG));
 
-        // Cache schema if structure is unchanged
-        if (cachedSchema == null) {
-            SchemaBuilder schemaBuilder = SchemaBuilder.struct().name("UpdatedRecord");
-
-            // Add extracted headers
-            extractedHeaders.forEach((key, value) -> schemaBuilder.field(key, Schema.STRING_SCHEMA));
+        layouts = new SchemaIdentityCache<>(config.getInt(SCHEMA_CACHE_MAX_SIZE_CONFIG));
+        metrics = new TransformMetrics("ExtractMultipleHeaders", config);
+    }
 
-            // Store Payload as JSON string
-            schemaBuilder.field(payloadFieldName, Schema.STRING_SCHEMA);
+    @Override
+    public R apply(R record) {
+        return metrics.apply(record, this::transform);
+    }
 
-            cachedSchema = schemaBuilder.build();
+    private R transform(R record) {
+        if (record == null || record.value() == null) {
+            return record;
         }
 
-        // Build new Struct
-        Struct updatedValue = new Struct(cachedSchema);
-        extractedHeaders.forEach(updatedValue::put); // Add extracted headers
-        updatedValue.put(payloadFieldName, payloadString); // Store the converted value as a JSON string
+        Struct updatedValue = wrap(record.valueSchema(), record.value(), record.headers());
 
         return record.newRecord(
                 record.topic(),
                 record.kafkaPartition(),
                 record.keySchema(), record.key(),
-                cachedSchema, updatedValue,
+                updatedValue.schema(), updatedValue,
                 record.timestamp(), record.headers()
         );
     }
 
-    private String extractHeaderValue(R record, String headerName) {
-        Header header = record.headers().lastWithName(headerName);
-        return (header != null && header.value() != null) ? header.value().toString() : "";
+    /**
+     * Builds the output value for a non-null value and its headers, for callers that already hold
+     * them outside a record.
+     */
+    Struct wrap(Schema valueSchema, Object value, Headers headers) {
+        OutputLayout layout = layouts.computeIfAbsent(valueSchema, this::buildLayout);
+
+        // Nest the original value as-is, or convert Struct (Payload) to JSON streamed straight from the schema
+        Object payload = value;
+        if (!layout.structured) {
+            if (payload instanceof Struct || payload instanceof Map || payload instanceof List) {
+                payload = StructJsonWriter.toJson(valueSchema, payload, isoTemporals);
+            } else {
+                payload = payload.toString();
+            }
+        }
+
+        // Build new Struct, filling the extracted headers by position
+        Struct updatedValue = new Struct(layout.schema);
+        for (int i = 0; i < headerSlots.length; i++) {
+            updatedValue.put(layout.headerFields[i], extractHeaderValue(headers, headerSlots[i], typeSlots[i]));
+        }
+        updatedValue.put(layout.payloadField, payload);
+        return updatedValue;
+    }
+
+    private OutputLayout buildLayout(Schema inputSchema) {
+        SchemaBuilder schemaBuilder = SchemaBuilder.struct().name("UpdatedRecord");
+
+        // Add extracted headers
+        for (int i = 0; i < fieldSlots.length; i++) {
+            schemaBuilder.field(fieldSlots[i], headerSchema(typeSlots[i]));
+        }
+
+        // Store Payload with its original schema, or as JSON string
+        boolean structured = structuredPayload && inputSchema != null;
+        schemaBuilder.field(payloadFieldName, structured ? inputSchema : Schema.STRING_SCHEMA);
+
+        return new OutputLayout(schemaBuilder.build(), fieldSlots, structured);
+    }
+
+    private Object extractHeaderValue(Headers headers, String headerName, HeaderValues.Type type) {
+        Header header = headers.lastWithName(headerName);
+        if (type != HeaderValues.Type.STRING) {
+            return headerValues.as(header, type);
+        }
+        String value = headerValues.asString(header);
+        return value != null ? value : "";
     }
 
-    private Map<String, Object> structToMap(Struct struct) {
-        Map<String, Object> map = new HashMap<>();
-        for (Field field : struct.schema().fields()) {
-            map.put(field.name(), struct.get(field));
+    private static Schema headerSchema(HeaderValues.Type type) {
+        switch (type) {
+            case LONG:
+                return Schema.OPTIONAL_INT64_SCHEMA;
+            case UUID:
+                return Schema.OPTIONAL_STRING_SCHEMA;
+            default:
+                return Schema.STRING_SCHEMA;
         }
-        return map;
     }
 
     private Map<String, String> parseRenameMappings(String mappings) {
+        if (mappings.isEmpty()) {
+            return Collections.emptyMap();
+        }
         return Arrays.stream(mappings.split(","))
                 .map(entry -> entry.split(":"))
                 .filter(pair -> pair.length == 2)
@@ -125,6 +199,31 @@ public class ExtractMultipleHeaders<R extends ConnectRecord<R>> implements Trans
 
     @Override
     public void close() {
-        // No-op
+        if (layouts != null) {
+            layouts.clear();
+        }
+        if (metrics != null) {
+            metrics.close();
+        }
+    }
+
+    /**
+     * Output schema for one input schema, with its fields resolved in header slot order.
+     */
+    private static final class OutputLayout {
+        final Schema schema;
+        final Field[] headerFields;
+        final Field payloadField;
+        final boolean structured;
+
+        OutputLayout(Schema schema, String[] fieldSlots, boolean structured) {
+            this.schema = schema;
+            this.structured = structured;
+            this.headerFields = new Field[fieldSlots.length];
+            for (int i = 0; i < fieldSlots.length; i++) {
+                headerFields[i] = schema.field(fieldSlots[i]);
+            }
+            this.payloadField = schema.fields().get(schema.fields().size() - 1);
+        }
     }
 }
@@ -0,0 +1,215 @@
+package com.twk.transforms;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Gzip decoder that reuses one native {@link Inflater}, input buffer and CRC per thread, where
+ * {@link java.util.zip.GZIPInputStream} allocates all three for every payload. The gzip framing
+ * (RFC 1952 header, CRC32 and size trailer, concatenated members) is read here; trailing bytes
+ * that do not start another member are ignored, as GZIPInputStream does.
+ * <p>
+ * A thread that opens a second stream before closing the first gets private resources for it,
+ * so nesting is safe; close() hands pooled resources back.
+ */
+final class GzipPayloadInputStream extends InputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int DEFLATE = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private static final ThreadLocal<Resources> POOL = ThreadLocal.withInitial(Resources::new);
+
+    private static final class Resources {
+        final Inflater inflater = new Inflater(true); // Raw deflate, the gzip framing is parsed here
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        final CRC32 crc = new CRC32();
+        boolean inUse;
+    }
+
+    private final InputStream in;
+    private final Resources resources;
+    private final boolean pooled;
+    private final Inflater inflater;
+    private final byte[] buffer;
+    private final CRC32 crc;
+    private int position;
+    private int limit;
+    private long size; // Uncompressed bytes of the current member
+    private boolean eof;
+    private boolean closed;
+
+    GzipPayloadInputStream(InputStream in) throws IOException {
+        this.in = in;
+        Resources shared = POOL.get();
+        this.pooled = !shared.inUse;
+        this.resources = pooled ? shared : new Resources();
+        resources.inUse = true;
+        this.inflater = resources.inflater;
+        this.buffer = resources.buffer;
+        this.crc = resources.crc;
+        inflater.reset();
+        crc.reset();
+        try {
+            readHeader();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (!eof) {
+            if (inflater.needsInput()) {
+                if (position == limit && !fill()) {
+                    throw new EOFException("Unexpected end of gzip stream");
+                }
+                inflater.setInput(buffer, position, limit - position);
+                position = limit;
+            }
+
+            int n;
+            try {
+                n = inflater.inflate(b, off, len);
+            } catch (DataFormatException e) {
+                throw new ZipException(e.getMessage());
+            }
+            if (n > 0) {
+                crc.update(b, off, n);
+                size += n;
+                return n;
+            }
+            if (inflater.finished()) {
+                position = limit - inflater.getRemaining(); // Give the unread input back to the framing
+                readTrailer();
+                eof = !nextMember();
+            } else if (inflater.needsDictionary()) {
+                throw new ZipException("Gzip payload requires a preset dictionary");
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (pooled) {
+            inflater.reset();
+            resources.inUse = false;
+        } else {
+            inflater.end();
+        }
+        in.close();
+    }
+
+    private void readHeader() throws IOException {
+        if (readUnsignedShort() != GZIP_MAGIC) {
+            throw new ZipException("Not in gzip format");
+        }
+        if (readUnsignedByte() != DEFLATE) {
+            throw new ZipException("Unsupported gzip compression method");
+        }
+        int flags = readUnsignedByte();
+        skip(6); // Modification time, extra flags, operating system
+        if ((flags & FEXTRA) != 0) {
+            skip(readUnsignedShort());
+        }
+        if ((flags & FNAME) != 0) {
+            skipZeroTerminated();
+        }
+        if ((flags & FCOMMENT) != 0) {
+            skipZeroTerminated();
+        }
+        if ((flags & FHCRC) != 0) {
+            skip(2);
+        }
+    }
+
+    private void readTrailer() throws IOException {
+        long expectedCrc = readUnsignedInt();
+        long expectedSize = readUnsignedInt();
+        if (expectedCrc != crc.getValue() || expectedSize != (size & 0xffffffffL)) {
+            throw new ZipException("Corrupt gzip trailer");
+        }
+    }
+
+    /**
+     * Starts the next concatenated member, or returns false at the end of the payload.
+     */
+    private boolean nextMember() throws IOException {
+        if (position == limit && !fill()) {
+            return false;
+        }
+        try {
+            readHeader();
+        } catch (IOException e) {
+            return false; // Trailing garbage
+        }
+        inflater.reset();
+        crc.reset();
+        size = 0;
+        return true;
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+
+    private int readUnsignedByte() throws IOException {
+        if (position == limit && !fill()) {
+            throw new EOFException("Unexpected end of gzip stream");
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    private int readUnsignedShort() throws IOException {
+        return readUnsignedByte() | (readUnsignedByte() << 8);
+    }
+
+    private long readUnsignedInt() throws IOException {
+        return (readUnsignedShort() | ((long) readUnsignedShort() << 16)) & 0xffffffffL;
+    }
+
+    private void skip(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            readUnsignedByte();
+        }
+    }
+
+    private void skipZeroTerminated() throws IOException {
+        while (readUnsignedByte() != 0) {
+            // Skip file name or comment
+        }
+    }
+}
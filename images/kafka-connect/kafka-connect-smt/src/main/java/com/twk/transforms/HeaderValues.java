@@ -0,0 +1,196 @@
+package com.twk.transforms;
+
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.header.Header;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Decodes Connect header values for the transforms in this package.
+ * <p>
+ * Headers written by non-Connect producers, or read through a ByteArrayConverter, arrive as byte[]
+ * or ByteBuffer. These are decoded as UTF-8 rather than falling through to Object.toString(), which
+ * yields "[B@..." for arrays. Short byte values go through a small direct-mapped intern table, so a
+ * repeated low-cardinality value such as a payload type resolves to the same String without
+ * decoding or allocating. Races on the table only cost a miss.
+ */
+final class HeaderValues {
+
+    /**
+     * Type a header is extracted as.
+     */
+    enum Type {
+        STRING, LONG, UUID;
+
+        static Type forName(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown header type '" + name + "', expected string, long or uuid");
+            }
+        }
+    }
+
+    static final int DEFAULT_INTERN_CACHE_SIZE = 256;
+    private static final int MAX_INTERNED_LENGTH = 64;
+
+    private final Interned[] interned;
+    private final int mask;
+
+    /**
+     * @param internCacheSize number of interned values kept, rounded up to a power of two (0 disables interning)
+     */
+    HeaderValues(int internCacheSize) {
+        int size = internCacheSize <= 0 ? 0 : Integer.highestOneBit(Math.max(1, internCacheSize - 1)) << 1;
+        this.interned = new Interned[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the header value as text, or null if the header or its value is missing.
+     */
+    String asString(Header header) {
+        if (header == null) {
+            return null;
+        }
+        Object value = header.value();
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            return decode(bytes, 0, bytes.length);
+        }
+        if (value instanceof ByteBuffer) {
+            ByteBuffer buffer = (ByteBuffer) value;
+            if (buffer.hasArray()) {
+                return decode(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            }
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            return decode(bytes, 0, bytes.length);
+        }
+        return value.toString();
+    }
+
+    /**
+     * Returns the header value as a long: numbers as-is, anything else parsed as text.
+     */
+    Long asLong(Header header) {
+        if (header == null || header.value() == null) {
+            return null;
+        }
+        Object value = header.value();
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        String text = asString(header).trim();
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw new DataException("Header '" + header.key() + "' is not a long: " + text);
+        }
+    }
+
+    /**
+     * Returns the header value as a UUID: a 16-byte value as big-endian, text parsed.
+     */
+    UUID asUuid(Header header) {
+        if (header == null || header.value() == null) {
+            return null;
+        }
+        Object value = header.value();
+        if (value instanceof UUID) {
+            return (UUID) value;
+        }
+        byte[] bytes = bytes(value);
+        if (bytes != null && bytes.length == 16) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+        String text = asString(header).trim();
+        try {
+            return UUID.fromString(text);
+        } catch (IllegalArgumentException e) {
+            throw new DataException("Header '" + header.key() + "' is not a UUID: " + text);
+        }
+    }
+
+    /**
+     * Returns the header value as the given type; UUIDs are returned in canonical string form.
+     */
+    Object as(Header header, Type type) {
+        switch (type) {
+            case LONG:
+                return asLong(header);
+            case UUID:
+                UUID uuid = asUuid(header);
+                return uuid != null ? uuid.toString() : null;
+            default:
+                return asString(header);
+        }
+    }
+
+    private String decode(byte[] bytes, int offset, int length) {
+        if (interned.length == 0 || length > MAX_INTERNED_LENGTH) {
+            return new String(bytes, offset, length, StandardCharsets.UTF_8);
+        }
+
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & mask;
+
+        Interned entry = interned[slot];
+        if (entry != null && entry.hash == hash && entry.matches(bytes, offset, length)) {
+            return entry.value;
+        }
+
+        String value = new String(bytes, offset, length, StandardCharsets.UTF_8);
+        byte[] copy = new byte[length];
+        System.arraycopy(bytes, offset, copy, 0, length);
+        interned[slot] = new Interned(hash, copy, value);
+        return value;
+    }
+
+    private static byte[] bytes(Object value) {
+        if (value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        if (value instanceof ByteBuffer) {
+            ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        }
+        return null;
+    }
+
+    private static final class Interned {
+        final int hash;
+        final byte[] bytes;
+        final String value;
+
+        Interned(int hash, byte[] bytes, String value) {
+            this.hash = hash;
+            this.bytes = bytes;
+            this.value = value;
+        }
+
+        boolean matches(byte[] other, int offset, int length) {
+            if (bytes.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] != other[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,559 @@
+package com.twk.transforms;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.avro.Schema;
+import org.apache.kafka.connect.data.Date;
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.data.Time;
+import org.apache.kafka.connect.data.Timestamp;
+import org.apache.kafka.connect.errors.DataException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * A compiled plan for reading JSON payloads into Connect data for one Avro schema.
+ * <p>
+ * The Avro schema is walked once, next to the Connect schema AvroData derives from it, and turned
+ * into a tree of readers. Reading a payload then only runs that tree over a streaming JsonParser:
+ * no per-field type switch, no union resolution and no intermediate GenericRecord.
+ * <p>
+ * Covers the full Avro type system: records, arrays, maps, enums, fixed, unions and the logical
+ * types AvroData maps to Connect (decimal, date, time-millis, timestamp-millis).
+ */
+final class JsonStructReader {
+
+    private static final String AVRO_UNION_NAME = "io.confluent.connect.avro.Union";
+    private static final String MAP_ENTRY_KEY = "key";
+    private static final String MAP_ENTRY_VALUE = "value";
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+    /**
+     * Reads the value starting at the parser's current token and leaves the parser on the
+     * value's last token. Callers handle JSON nulls before delegating.
+     */
+    @FunctionalInterface
+    interface ValueReader {
+        Object read(JsonParser parser) throws IOException;
+    }
+
+    /**
+     * A reader for JSON objects that can resume once the first field name has been consumed.
+     */
+    private interface ObjectReader extends ValueReader {
+        Object readFields(JsonParser parser, JsonToken token) throws IOException;
+
+        @Override
+        default Object read(JsonParser parser) throws IOException {
+            expect(parser, JsonToken.START_OBJECT);
+            return readFields(parser, parser.nextToken());
+        }
+    }
+
+    private final org.apache.kafka.connect.data.Schema schema;
+    private final RecordReader root;
+
+    private JsonStructReader(org.apache.kafka.connect.data.Schema schema, RecordReader root) {
+        this.schema = schema;
+        this.root = root;
+    }
+
+    /**
+     * Compiles a reader for a record schema and the Connect schema AvroData produced for it.
+     */
+    static JsonStructReader compile(Schema avroSchema, org.apache.kafka.connect.data.Schema connectSchema) {
+        if (avroSchema.getType() != Schema.Type.RECORD) {
+            throw new DataException("Payload schema must be an Avro record, got: " + avroSchema.getType());
+        }
+        return new JsonStructReader(connectSchema, new RecordReader(avroSchema, connectSchema));
+    }
+
+    org.apache.kafka.connect.data.Schema schema() {
+        return schema;
+    }
+
+    /**
+     * Reads one JSON object from a fresh parser into a Struct of {@link #schema()}.
+     */
+    Struct read(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new DataException("Payload is not a JSON object");
+        }
+        return (Struct) root.read(parser);
+    }
+
+    private static ValueReader compileValue(Schema avro, org.apache.kafka.connect.data.Schema connect) {
+        switch (avro.getType()) {
+            case UNION:
+                return compileUnion(avro, connect);
+            case RECORD:
+                return new RecordReader(avro, connect);
+            case ARRAY:
+                if (connect.type() == org.apache.kafka.connect.data.Schema.Type.MAP) {
+                    return new MapEntryArrayReader(avro.getElementType(), connect);
+                }
+                return new ArrayReader(compileValue(avro.getElementType(), connect.valueSchema()));
+            case MAP:
+                return new MapReader(compileValue(avro.getValueType(), connect.valueSchema()));
+            case ENUM:
+                return new EnumReader(avro);
+            case FIXED:
+            case BYTES:
+                return compileBytes(avro, connect);
+            case STRING:
+                return parser -> scalar(parser).getValueAsString();
+            case INT:
+                return compileInt(connect);
+            case LONG:
+                if (Timestamp.LOGICAL_NAME.equals(connect.name())) {
+                    return parser -> new java.util.Date(readEpochMillis(scalar(parser)));
+                }
+                return parser -> numeric(parser).getValueAsLong();
+            case FLOAT:
+                return parser -> (float) numeric(parser).getValueAsDouble();
+            case DOUBLE:
+                return parser -> numeric(parser).getValueAsDouble();
+            case BOOLEAN:
+                return JsonStructReader::bool;
+            case NULL:
+                return parser -> null;
+            default:
+                throw new DataException("Unsupported Avro type: " + avro.getType());
+        }
+    }
+
+    private static ValueReader compileUnion(Schema avro, org.apache.kafka.connect.data.Schema connect) {
+        List<Schema> branches = new ArrayList<>();
+        for (Schema branch : avro.getTypes()) {
+            if (branch.getType() != Schema.Type.NULL) {
+                branches.add(branch);
+            }
+        }
+
+        if (connect.type() == org.apache.kafka.connect.data.Schema.Type.STRUCT && AVRO_UNION_NAME.equals(connect.name())) {
+            return new UnionReader(branches, connect);
+        }
+        if (branches.size() != 1) {
+            throw new DataException("Could not resolve UNION schema: " + avro);
+        }
+        // AvroData maps [null, X] to an optional X, so the branch reads against the same Connect schema
+        return compileValue(branches.get(0), connect);
+    }
+
+    private static ValueReader compileInt(org.apache.kafka.connect.data.Schema connect) {
+        if (Date.LOGICAL_NAME.equals(connect.name())) {
+            return parser -> {
+                JsonParser p = scalar(parser);
+                long days = p.currentToken() == JsonToken.VALUE_STRING
+                        ? LocalDate.parse(p.getText()).toEpochDay()
+                        : numeric(p).getValueAsInt();
+                return new java.util.Date(days * MILLIS_PER_DAY);
+            };
+        }
+        if (Time.LOGICAL_NAME.equals(connect.name())) {
+            return parser -> {
+                JsonParser p = scalar(parser);
+                long millis = p.currentToken() == JsonToken.VALUE_STRING
+                        ? LocalTime.parse(p.getText()).toNanoOfDay() / 1_000_000L
+                        : numeric(p).getValueAsInt();
+                return new java.util.Date(millis);
+            };
+        }
+        switch (connect.type()) {
+            case INT8: return parser -> (byte) numeric(parser).getValueAsInt();
+            case INT16: return parser -> (short) numeric(parser).getValueAsInt();
+            default: return parser -> numeric(parser).getValueAsInt();
+        }
+    }
+
+    private static ValueReader compileBytes(Schema avro, org.apache.kafka.connect.data.Schema connect) {
+        if (Decimal.LOGICAL_NAME.equals(connect.name())) {
+            int scale = Integer.parseInt(connect.parameters().get(Decimal.SCALE_FIELD));
+            return parser -> readDecimal(scalar(parser), connect, scale);
+        }
+        if (avro.getType() == Schema.Type.FIXED) {
+            int size = avro.getFixedSize();
+            return parser -> {
+                byte[] bytes = scalar(parser).getBinaryValue();
+                if (bytes.length != size) {
+                    throw new DataException("Fixed " + avro.getFullName() + " expects " + size + " bytes, got " + bytes.length);
+                }
+                return bytes;
+            };
+        }
+        return parser -> scalar(parser).getBinaryValue();
+    }
+
+    /**
+     * Decimals arrive either as JSON numbers or, as Avro's bytes encoding, base64 two's-complement.
+     */
+    private static BigDecimal readDecimal(JsonParser parser, org.apache.kafka.connect.data.Schema connect, int scale) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_STRING) {
+            return Decimal.toLogical(connect, parser.getBinaryValue());
+        }
+        try {
+            return parser.getDecimalValue().setScale(scale, RoundingMode.UNNECESSARY);
+        } catch (ArithmeticException e) {
+            throw new DataException("Decimal value " + parser.getText() + " does not fit scale " + scale, e);
+        }
+    }
+
+    private static long readEpochMillis(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            return numeric(parser).getValueAsLong();
+        }
+        String text = parser.getText();
+        try {
+            return Instant.parse(text).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            // No offset in the text, treat it as UTC
+            return LocalDateTime.parse(text).toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+    }
+
+    private static JsonParser scalar(JsonParser parser) {
+        JsonToken token = parser.currentToken();
+        if (token == null || !token.isScalarValue()) {
+            throw new DataException("Expected a scalar JSON value but got " + token);
+        }
+        return parser;
+    }
+
+    /**
+     * Accepts JSON numbers and numeric strings; anything else would otherwise be read as 0.
+     */
+    private static JsonParser numeric(JsonParser parser) throws IOException {
+        JsonToken token = scalar(parser).currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser;
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                new BigDecimal(parser.getText().trim());
+                return parser;
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+        }
+        throw new DataException("Expected a number but got " + token + " '" + parser.getText() + "'");
+    }
+
+    /**
+     * Accepts JSON booleans and the strings "true" and "false"; anything else would otherwise be
+     * read as false.
+     */
+    private static Object bool(JsonParser parser) throws IOException {
+        JsonToken token = scalar(parser).currentToken();
+        if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+            return token == JsonToken.VALUE_TRUE;
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            String text = parser.getText().trim();
+            if (text.equals("true") || text.equals("false")) {
+                return Boolean.valueOf(text);
+            }
+        }
+        throw new DataException("Expected a boolean but got " + token + " '" + parser.getText() + "'");
+    }
+
+    private static void expect(JsonParser parser, JsonToken expected) {
+        if (parser.currentToken() != expected) {
+            throw new DataException("Expected " + expected + " but got " + parser.currentToken());
+        }
+    }
+
+    private static final class RecordReader implements ObjectReader {
+        private final org.apache.kafka.connect.data.Schema schema;
+        private final Map<String, Integer> slots;
+        private final Field[] fields;
+        private final ValueReader[] readers;
+        private final Field[] required;
+
+        RecordReader(Schema avro, org.apache.kafka.connect.data.Schema connect) {
+            List<Schema.Field> avroFields = avro.getFields();
+            this.schema = connect;
+            this.slots = new HashMap<>(avroFields.size() * 2);
+            this.fields = new Field[avroFields.size()];
+            this.readers = new ValueReader[avroFields.size()];
+
+            List<Field> requiredFields = new ArrayList<>();
+            for (Schema.Field avroField : avroFields) {
+                Field field = connect.field(avroField.name());
+                if (field == null) {
+                    throw new DataException("Connect schema has no field " + avroField.name() + " for " + avro.getFullName());
+                }
+                int slot = avroField.pos();
+                slots.put(avroField.name(), slot);
+                fields[slot] = field;
+                readers[slot] = compileValue(avroField.schema(), field.schema());
+                if (!field.schema().isOptional() && field.schema().defaultValue() == null) {
+                    requiredFields.add(field);
+                }
+            }
+            this.required = requiredFields.toArray(new Field[0]);
+        }
+
+        @Override
+        public Object readFields(JsonParser parser, JsonToken token) throws IOException {
+            Struct struct = new Struct(schema);
+            for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+                Integer slot = slots.get(parser.currentName());
+                JsonToken valueToken = parser.nextToken();
+                if (slot == null) {
+                    parser.skipChildren(); // Not part of the schema, ignore it
+                    continue;
+                }
+                if (valueToken != JsonToken.VALUE_NULL) {
+                    struct.put(fields[slot], readers[slot].read(parser));
+                }
+            }
+            expect(parser, JsonToken.END_OBJECT);
+
+            for (Field field : required) {
+                if (struct.get(field) == null) {
+                    throw new DataException("Missing required field: " + field.name());
+                }
+            }
+            return struct;
+        }
+    }
+
+    private static final class ArrayReader implements ValueReader {
+        private final ValueReader element;
+
+        ArrayReader(ValueReader element) {
+            this.element = element;
+        }
+
+        @Override
+        public Object read(JsonParser parser) throws IOException {
+            expect(parser, JsonToken.START_ARRAY);
+            List<Object> list = new ArrayList<>();
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                list.add(token == JsonToken.VALUE_NULL ? null : element.read(parser));
+            }
+            return list;
+        }
+    }
+
+    private static final class MapReader implements ObjectReader {
+        private final ValueReader value;
+
+        MapReader(ValueReader value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object readFields(JsonParser parser, JsonToken token) throws IOException {
+            Map<String, Object> map = new HashMap<>();
+            for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+                String key = parser.currentName();
+                JsonToken valueToken = parser.nextToken();
+                map.put(key, valueToken == JsonToken.VALUE_NULL ? null : value.read(parser));
+            }
+            expect(parser, JsonToken.END_OBJECT);
+            return map;
+        }
+    }
+
+    /**
+     * AvroData encodes Connect maps with non-string keys as arrays of key/value records.
+     */
+    private static final class MapEntryArrayReader implements ValueReader {
+        private final ValueReader key;
+        private final ValueReader value;
+
+        MapEntryArrayReader(Schema entry, org.apache.kafka.connect.data.Schema connect) {
+            this.key = compileValue(entry.getField(MAP_ENTRY_KEY).schema(), connect.keySchema());
+            this.value = compileValue(entry.getField(MAP_ENTRY_VALUE).schema(), connect.valueSchema());
+        }
+
+        @Override
+        public Object read(JsonParser parser) throws IOException {
+            expect(parser, JsonToken.START_ARRAY);
+            Map<Object, Object> map = new HashMap<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                expect(parser, JsonToken.START_OBJECT);
+                Object entryKey = null;
+                Object entryValue = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    JsonToken valueToken = parser.nextToken();
+                    if (MAP_ENTRY_KEY.equals(name)) {
+                        entryKey = valueToken == JsonToken.VALUE_NULL ? null : key.read(parser);
+                    } else if (MAP_ENTRY_VALUE.equals(name)) {
+                        entryValue = valueToken == JsonToken.VALUE_NULL ? null : value.read(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                map.put(entryKey, entryValue);
+            }
+            return map;
+        }
+    }
+
+    private static final class EnumReader implements ValueReader {
+        private final String name;
+        private final Map<String, String> symbols = new HashMap<>();
+
+        EnumReader(Schema avro) {
+            this.name = avro.getFullName();
+            for (String symbol : avro.getEnumSymbols()) {
+                symbols.put(symbol, symbol);
+            }
+        }
+
+        @Override
+        public Object read(JsonParser parser) throws IOException {
+            String text = scalar(parser).getText();
+            String symbol = symbols.get(text);
+            if (symbol == null) {
+                throw new DataException("Unknown symbol " + text + " for enum " + name);
+            }
+            return symbol;
+        }
+    }
+
+    /**
+     * Reads general unions into AvroData's Union struct, which has one optional field per non-null
+     * branch in declaration order. A branch is picked from the JSON token, or from the Avro JSON
+     * encoding's single-key wrapper object ({"string": "..."}) when present.
+     */
+    private static final class UnionReader implements ValueReader {
+        private final org.apache.kafka.connect.data.Schema schema;
+        private final Field[] fields;
+        private final ValueReader[] readers;
+        private final Map<String, Integer> branchesByName = new HashMap<>();
+        private int stringBranch = -1;
+        private int integerBranch = -1;
+        private int floatBranch = -1;
+        private int booleanBranch = -1;
+        private int arrayBranch = -1;
+        private int objectBranch = -1;
+
+        UnionReader(List<Schema> branches, org.apache.kafka.connect.data.Schema connect) {
+            List<Field> connectFields = connect.fields();
+            if (connectFields.size() != branches.size()) {
+                throw new DataException("Union struct " + connect.name() + " does not match its Avro branches");
+            }
+
+            this.schema = connect;
+            this.fields = connectFields.toArray(new Field[0]);
+            this.readers = new ValueReader[branches.size()];
+
+            for (int i = 0; i < branches.size(); i++) {
+                Schema branch = branches.get(i);
+                readers[i] = compileValue(branch, fields[i].schema());
+                branchesByName.put(branchName(branch), i);
+                classify(branch, i);
+            }
+            if (integerBranch < 0) {
+                integerBranch = floatBranch;
+            }
+        }
+
+        private void classify(Schema branch, int index) {
+            switch (branch.getType()) {
+                case STRING:
+                case ENUM:
+                case BYTES:
+                case FIXED:
+                    if (stringBranch < 0) stringBranch = index;
+                    break;
+                case INT:
+                case LONG:
+                    if (integerBranch < 0) integerBranch = index;
+                    break;
+                case FLOAT:
+                case DOUBLE:
+                    if (floatBranch < 0) floatBranch = index;
+                    break;
+                case BOOLEAN:
+                    if (booleanBranch < 0) booleanBranch = index;
+                    break;
+                case ARRAY:
+                    if (arrayBranch < 0) arrayBranch = index;
+                    break;
+                case RECORD:
+                case MAP:
+                    if (objectBranch < 0) objectBranch = index;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private static String branchName(Schema branch) {
+            switch (branch.getType()) {
+                case RECORD:
+                case ENUM:
+                case FIXED:
+                    return branch.getFullName();
+                default:
+                    return branch.getType().getName();
+            }
+        }
+
+        @Override
+        public Object read(JsonParser parser) throws IOException {
+            JsonToken token = parser.currentToken();
+            switch (token) {
+                case START_OBJECT:
+                    return readObject(parser);
+                case START_ARRAY:
+                    return union(arrayBranch, parser, token);
+                case VALUE_STRING:
+                    return union(stringBranch, parser, token);
+                case VALUE_NUMBER_INT:
+                    return union(integerBranch, parser, token);
+                case VALUE_NUMBER_FLOAT:
+                    return union(floatBranch, parser, token);
+                case VALUE_TRUE:
+                case VALUE_FALSE:
+                    return union(booleanBranch, parser, token);
+                default:
+                    throw new DataException("Cannot read " + token + " as union " + schema.name());
+            }
+        }
+
+        private Object readObject(JsonParser parser) throws IOException {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.FIELD_NAME) {
+                Integer branch = branchesByName.get(parser.currentName());
+                if (branch != null) {
+                    JsonToken valueToken = parser.nextToken();
+                    Object value = valueToken == JsonToken.VALUE_NULL ? null : readers[branch].read(parser);
+                    if (parser.nextToken() != JsonToken.END_OBJECT) {
+                        throw new DataException("Union wrapper for " + parser.currentName() + " has more than one field");
+                    }
+                    return new Struct(schema).put(fields[branch], value);
+                }
+            }
+            if (objectBranch < 0) {
+                throw new DataException("Union " + schema.name() + " has no record or map branch for a JSON object");
+            }
+            Object value = ((ObjectReader) readers[objectBranch]).readFields(parser, token);
+            return new Struct(schema).put(fields[objectBranch], value);
+        }
+
+        private Object union(int branch, JsonParser parser, JsonToken token) throws IOException {
+            if (branch < 0) {
+                throw new DataException("Union " + schema.name() + " has no branch for " + token);
+            }
+            return new Struct(schema).put(fields[branch], readers[branch].read(parser));
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.twk.transforms;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free log-linear histogram of nanosecond durations over a rolling window.
+ * <p>
+ * Each power of two is split into 8 linear buckets, so a reported percentile is within 12.5% of
+ * the true value. The window (one minute by default) is kept as 6 slots that are recycled as time
+ * moves on, so a slow spell shows up within seconds and ages out a minute later instead of being
+ * diluted by the task's whole lifetime. Recording is one array increment plus two striped adders
+ * in the current slot; reads merge the live slots from a racy scan, which is fine for monitoring.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    private static final int SLOTS = 6;
+
+    private final Slot[] slots = new Slot[SLOTS];
+    private final long slotNanos;
+    private final LongSupplier clock;
+
+    LatencyHistogram() {
+        this(TimeUnit.MINUTES.toNanos(1), System::nanoTime);
+    }
+
+    /**
+     * @param windowNanos how far back reads look, rounded down to a multiple of the slot count
+     * @param clock       nanosecond clock, replaced in tests
+     */
+    LatencyHistogram(long windowNanos, LongSupplier clock) {
+        this.slotNanos = Math.max(1L, windowNanos / SLOTS);
+        this.clock = clock;
+        for (int i = 0; i < SLOTS; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        Slot slot = current();
+        slot.counts.incrementAndGet(index(value));
+        slot.count.increment();
+        slot.sum.add(value);
+        slot.max.accumulate(value);
+    }
+
+    long count() {
+        long epoch = epoch();
+        long n = 0;
+        for (Slot slot : slots) {
+            if (slot.liveAt(epoch)) {
+                n += slot.count.sum();
+            }
+        }
+        return n;
+    }
+
+    double mean() {
+        long epoch = epoch();
+        long n = 0;
+        long total = 0;
+        for (Slot slot : slots) {
+            if (slot.liveAt(epoch)) {
+                n += slot.count.sum();
+                total += slot.sum.sum();
+            }
+        }
+        return n == 0 ? 0.0 : (double) total / n;
+    }
+
+    long max() {
+        long epoch = epoch();
+        long max = 0L;
+        for (Slot slot : slots) {
+            if (slot.liveAt(epoch)) {
+                max = Math.max(max, slot.max.get());
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the given quantile (0..1), or 0 if empty.
+     */
+    long percentile(double quantile) {
+        long epoch = epoch();
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (Slot slot : slots) {
+            if (!slot.liveAt(epoch)) {
+                continue;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                long count = slot.counts.get(i);
+                snapshot[i] += count;
+                total += count;
+            }
+        }
+        if (total == 0) {
+            return 0L;
+        }
+
+        long max = max();
+        long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(max, i + 1 < BUCKETS ? lowerBound(i + 1) - 1 : Long.MAX_VALUE);
+            }
+        }
+        return max;
+    }
+
+    private long epoch() {
+        return Math.floorDiv(clock.getAsLong(), slotNanos);
+    }
+
+    /**
+     * Returns the slot for the current epoch, clearing it first if it still holds an older one.
+     */
+    private Slot current() {
+        long epoch = epoch();
+        Slot slot = slots[(int) Math.floorMod(epoch, (long) SLOTS)];
+        if (slot.epoch != epoch) {
+            synchronized (slot) {
+                if (slot.epoch != epoch) {
+                    slot.reset();
+                    slot.epoch = epoch;
+                }
+            }
+        }
+        return slot;
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int magnitude = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        return (1L << magnitude) | (subBucket << (magnitude - SUB_BUCKET_BITS));
+    }
+
+    private static final class Slot {
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Long::max, 0L);
+        private volatile long epoch = Long.MIN_VALUE;
+
+        boolean liveAt(long now) {
+            long e = epoch;
+            return e != Long.MIN_VALUE && e <= now && now - e < SLOTS;
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0L);
+            }
+            count.reset();
+            sum.reset();
+            max.reset();
+        }
+    }
+}
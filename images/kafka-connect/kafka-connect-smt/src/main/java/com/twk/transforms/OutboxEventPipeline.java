@@ -0,0 +1,174 @@
+package com.twk.transforms;
+
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.connector.ConnectRecord;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.transforms.Transformation;
+import org.apache.kafka.connect.transforms.util.SimpleConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Runs the usual outbox chain in one pass: unwrap the Debezium change event to its {@code after}
+ * row, route it with {@link OutboxEventRouter}, promote outbox columns to headers and optionally
+ * wrap the value with {@link ExtractMultipleHeaders}. The final record is built once, instead of
+ * once per transform.
+ * <p>
+ * Router settings are passed with the prefix {@code router.} (e.g. {@code router.schema.registry.url})
+ * and header extraction settings with {@code extract.} (e.g. {@code extract.headers.to.extract}).
+ */
+public class OutboxEventPipeline<R extends ConnectRecord<R>> implements Transformation<R> {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxEventPipeline.class);
+
+    private static final String ROUTER_PREFIX = "router.";
+    private static final String EXTRACT_PREFIX = "extract.";
+
+    private static final String UNWRAP_ENVELOPE_CONFIG = "unwrap.envelope";
+    private static final String UNWRAP_OPERATIONS_CONFIG = "unwrap.operations";
+    private static final String PROMOTE_FIELDS_CONFIG = "promote.fields";
+    private static final String EXTRACT_ENABLED_CONFIG = "extract.enabled";
+
+    private static final String ENVELOPE_AFTER_FIELD = "after";
+    private static final String ENVELOPE_OP_FIELD = "op";
+
+    public static final ConfigDef CONFIG_DEF = TransformMetrics.addConfig(new ConfigDef()
+            .define(UNWRAP_ENVELOPE_CONFIG, ConfigDef.Type.BOOLEAN, true, ConfigDef.Importance.MEDIUM,
+                    "Unwrap Debezium change events to their 'after' row; values that are not change events are routed as they are")
+            .define(UNWRAP_OPERATIONS_CONFIG, ConfigDef.Type.LIST, "c,r", ConfigDef.Importance.MEDIUM,
+                    "Change event operations to route; others (updates such as ProcessedAt being set, deletes) and tombstones are dropped")
+            .define(PROMOTE_FIELDS_CONFIG, ConfigDef.Type.LIST, "", ConfigDef.Importance.MEDIUM,
+                    "Outbox columns to copy into headers of the routed record, as 'Column:header-name' (e.g., 'AggregateType:aggregate-type')")
+            .define(EXTRACT_ENABLED_CONFIG, ConfigDef.Type.BOOLEAN, false, ConfigDef.Importance.MEDIUM,
+                    "Wrap the routed value with ExtractMultipleHeaders, configured by the 'extract.' settings"));
+
+    private final OutboxEventRouter<R> router = new OutboxEventRouter<>();
+    private ExtractMultipleHeaders<R> extractor;
+    private boolean unwrapEnvelope;
+    private Set<String> operations;
+    private String[] promotedColumns;
+    private String[] promotedHeaders;
+    private TransformMetrics metrics;
+
+    @Override
+    public void configure(Map<String, ?> props) {
+        SimpleConfig config = new SimpleConfig(CONFIG_DEF, props);
+        unwrapEnvelope = config.getBoolean(UNWRAP_ENVELOPE_CONFIG);
+        operations = new HashSet<>(config.getList(UNWRAP_OPERATIONS_CONFIG));
+        metrics = new TransformMetrics("OutboxEventPipeline", config);
+
+        List<String> promoted = config.getList(PROMOTE_FIELDS_CONFIG);
+        promotedColumns = new String[promoted.size()];
+        promotedHeaders = new String[promoted.size()];
+        for (int i = 0; i < promoted.size(); i++) {
+            String[] pair = promoted.get(i).split(":");
+            if (pair.length != 2) {
+                throw new ConfigException(PROMOTE_FIELDS_CONFIG, promoted, "Expected Column:header-name but got: " + promoted.get(i));
+            }
+            promotedColumns[i] = pair[0].trim();
+            promotedHeaders[i] = pair[1].trim();
+        }
+
+        router.configure(config.originalsWithPrefix(ROUTER_PREFIX));
+        if (config.getBoolean(EXTRACT_ENABLED_CONFIG)) {
+            Map<String, Object> extractProps = config.originalsWithPrefix(EXTRACT_PREFIX);
+            extractProps.remove("enabled");
+            extractor = new ExtractMultipleHeaders<>();
+            extractor.configure(extractProps);
+        }
+
+        log.info("OutboxEventPipeline configured (unwrap={}, operations={}, promoted={}, extract={})",
+                unwrapEnvelope, operations, promoted, extractor != null);
+    }
+
+    @Override
+    public R apply(R record) {
+        return metrics.apply(record, this::transform);
+    }
+
+    private R transform(R record) {
+        Object row = record.value();
+        Schema rowSchema = record.valueSchema();
+        if (row == null) {
+            return unwrapEnvelope ? null : record; // Tombstone following a delete
+        }
+
+        if (unwrapEnvelope && row instanceof Struct) {
+            Struct envelope = (Struct) row;
+            Field after = envelope.schema().field(ENVELOPE_AFTER_FIELD);
+            Field op = envelope.schema().field(ENVELOPE_OP_FIELD);
+            if (after != null && op != null) {
+                if (!operations.contains(envelope.get(op)) || envelope.get(after) == null) {
+                    return null;
+                }
+                row = envelope.get(after);
+                rowSchema = after.schema();
+            }
+        }
+
+        OutboxEventRouter.RoutedEvent routed = router.route(record, row);
+        if (routed == null) {
+            // Not routable: pass the unwrapped row on, as the unwrap transform would have
+            return row == record.value() ? record : record.newRecord(
+                    record.topic(),
+                    record.kafkaPartition(),
+                    record.keySchema(),
+                    record.key(),
+                    rowSchema,
+                    row,
+                    record.timestamp()
+            );
+        }
+
+        if (promotedColumns.length > 0) {
+            Struct outboxRow = (Struct) row;
+            for (int i = 0; i < promotedColumns.length; i++) {
+                Field column = outboxRow.schema().field(promotedColumns[i]);
+                Object value = column != null ? outboxRow.get(column) : null;
+                if (value != null) {
+                    routed.headers.add(promotedHeaders[i], value, column.schema());
+                }
+            }
+        }
+
+        Schema valueSchema = routed.valueSchema;
+        Object value = routed.value;
+        if (extractor != null) {
+            Struct wrapped = extractor.wrap(valueSchema, value, routed.headers);
+            valueSchema = wrapped.schema();
+            value = wrapped;
+        }
+
+        return record.newRecord(
+                routed.topic,
+                routed.partition,
+                Schema.OPTIONAL_STRING_SCHEMA,
+                routed.key,
+                valueSchema,
+                value,
+                record.timestamp(),
+                routed.headers
+        );
+    }
+
+    @Override
+    public ConfigDef config() {
+        return CONFIG_DEF;
+    }
+
+    @Override
+    public void close() {
+        router.close();
+        if (metrics != null) {
+            metrics.close();
+        }
+        if (extractor != null) {
+            extractor.close();
+        }
+    }
+}
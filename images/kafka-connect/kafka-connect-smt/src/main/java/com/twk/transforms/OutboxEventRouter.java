@@ -1,14 +1,17 @@
 package com.twk.transforms;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import io.confluent.connect.avro.AvroData;
 import org.apache.avro.Schema;
-import org.apache.avro.generic.GenericData;
-import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
 import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.utils.Utils;
 import org.apache.kafka.connect.connector.ConnectRecord;
 import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.SchemaAndValue;
 import org.apache.kafka.connect.data.Struct;
 import org.apache.kafka.connect.errors.ConnectException;
 import org.apache.kafka.connect.header.ConnectHeaders;
@@ -16,13 +19,21 @@ import org.apache.kafka.connect.transforms.Transformation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import io.confluent.kafka.schemaregistry.ParsedSchema;
 import io.confluent.kafka.schemaregistry.client.CachedSchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.SchemaMetadata;
 import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
 import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
+import io.confluent.kafka.schemaregistry.testutil.MockSchemaRegistry;
 import org.apache.kafka.connect.transforms.util.SimpleConfig;
 
 public class OutboxEventRouter<R extends ConnectRecord<R>> implements Transformation<R> {
@@ -41,24 +52,112 @@ public class OutboxEventRouter<R extends ConnectRecord<R>> implements Transforma
     private static final String SCHEMA_REGISTRY_PASSWORD = "schema.registry.password";
     private static final String SCHEMA_REGISTRY_TRUSTSTORE_LOCATION = "schema.registry.ssl.truststore.location";
     private static final String SCHEMA_REGISTRY_TRUSTSTORE_PASSWORD = "schema.registry.ssl.truststore.password";
-
-    public static final ConfigDef CONFIG_DEF = new ConfigDef()
+    private static final String SCHEMA_CACHE_TTL_MS_CONFIG = "schema.cache.ttl.ms";
+    private static final String SCHEMA_CACHE_MAX_SIZE_CONFIG = "schema.cache.max.size";
+    private static final String SCHEMA_CACHE_RETRY_BACKOFF_MS_CONFIG = "schema.cache.retry.backoff.ms";
+    private static final String SCHEMA_CACHE_RETRY_BACKOFF_MAX_MS_CONFIG = "schema.cache.retry.backoff.max.ms";
+    private static final String SCHEMA_WARMUP_SUBJECTS_CONFIG = "schema.warmup.subjects";
+    private static final String SCHEMA_WARMUP_SUBJECT_PREFIX_CONFIG = "schema.warmup.subject.prefix";
+    private static final String SCHEMA_WARMUP_PARALLELISM_CONFIG = "schema.warmup.parallelism";
+    private static final String SCHEMA_WARMUP_TIMEOUT_MS_CONFIG = "schema.warmup.timeout.ms";
+    private static final String SCHEMA_SNAPSHOT_PATH_CONFIG = "schema.snapshot.path";
+    private static final String SCHEMA_SNAPSHOT_MAX_AGE_MS_CONFIG = "schema.snapshot.max.age.ms";
+    private static final String PAYLOAD_FORMAT_CONFIG = "payload.format";
+    private static final String PAYLOAD_ENCODING_CONFIG = "payload.encoding";
+    private static final String PAYLOAD_ENCODING_FIELD_CONFIG = "payload.encoding.field";
+    private static final String PARTITIONER_CONFIG = "partitioner";
+    private static final String PARTITION_COUNTS_CONFIG = "partition.counts";
+    private static final String PARTITION_COUNT_BOOTSTRAP_SERVERS_CONFIG = "partition.count.bootstrap.servers";
+    private static final String PARTITION_COUNT_REFRESH_MS_CONFIG = "partition.count.refresh.ms";
+    private static final String PARTITION_COUNT_ADMIN_PREFIX = "partition.count.admin.";
+    private static final String TRACING_ENABLED_CONFIG = "tracing.enabled";
+    private static final String TRACING_SAMPLE_RATIO_CONFIG = "tracing.sample.ratio";
+
+    private static final String PAYLOAD_FORMAT_JSON = "json";
+    private static final String PAYLOAD_FORMAT_AVRO = "avro";
+    private static final String PAYLOAD_FORMAT_AUTO = "auto";
+    private static final String PAYLOAD_ENCODING_AUTO = "auto";
+
+    private static final String PARTITIONER_SOURCE = "source";
+    private static final String PARTITIONER_KEY_HASH = "key-hash";
+    private static final String PARTITIONER_PRODUCER = "producer";
+
+    private static final byte WIRE_FORMAT_MAGIC_BYTE = 0x0;
+    private static final int WIRE_FORMAT_HEADER_SIZE = 5;
+    private static final char SUBJECT_ID_SEPARATOR = '@';
+
+    private static final String MOCK_REGISTRY_URL_PREFIX = "mock://";
+
+    public static final ConfigDef CONFIG_DEF = TransformMetrics.addConfig(new ConfigDef()
             .define(SCHEMA_REGISTRY_URL_CONFIG, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, "Schema Registry URL")
             .define(SCHEMA_REGISTRY_USERNAME, ConfigDef.Type.STRING, null, ConfigDef.Importance.MEDIUM, "Schema Registry username")
             .define(SCHEMA_REGISTRY_PASSWORD, ConfigDef.Type.STRING, null, ConfigDef.Importance.MEDIUM, "Schema Registry password")
             .define(SCHEMA_REGISTRY_TRUSTSTORE_LOCATION, ConfigDef.Type.STRING, null, ConfigDef.Importance.MEDIUM, "Schema Registry SSL Truststore Location")
-            .define(SCHEMA_REGISTRY_TRUSTSTORE_PASSWORD, ConfigDef.Type.STRING, null, ConfigDef.Importance.MEDIUM, "Schema Registry SSL Truststore Password");
-
-    private final ObjectMapper objectMapper = new ObjectMapper();
+            .define(SCHEMA_REGISTRY_TRUSTSTORE_PASSWORD, ConfigDef.Type.STRING, null, ConfigDef.Importance.MEDIUM, "Schema Registry SSL Truststore Password")
+            .define(SCHEMA_CACHE_TTL_MS_CONFIG, ConfigDef.Type.LONG, 300_000L, ConfigDef.Range.atLeast(0), ConfigDef.Importance.MEDIUM, "How long a cached schema is used before it is refreshed in the background (0 = never refresh)")
+            .define(SCHEMA_CACHE_MAX_SIZE_CONFIG, ConfigDef.Type.INT, 1000, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, "Maximum number of subjects kept in the schema cache")
+            .define(SCHEMA_CACHE_RETRY_BACKOFF_MS_CONFIG, ConfigDef.Type.LONG, 1_000L, ConfigDef.Range.atLeast(0), ConfigDef.Importance.LOW, "Initial backoff before retrying a failed schema lookup")
+            .define(SCHEMA_CACHE_RETRY_BACKOFF_MAX_MS_CONFIG, ConfigDef.Type.LONG, 60_000L, ConfigDef.Range.atLeast(0), ConfigDef.Importance.LOW, "Maximum backoff before retrying a failed schema lookup")
+            .define(SCHEMA_WARMUP_SUBJECTS_CONFIG, ConfigDef.Type.LIST, "", ConfigDef.Importance.LOW, "Subjects to load into the schema cache during configure()")
+            .define(SCHEMA_WARMUP_SUBJECT_PREFIX_CONFIG, ConfigDef.Type.STRING, null, ConfigDef.Importance.LOW, "Load every registry subject starting with this prefix during configure()")
+            .define(SCHEMA_WARMUP_PARALLELISM_CONFIG, ConfigDef.Type.INT, 8, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, "Number of threads used for schema warm-up")
+            .define(SCHEMA_WARMUP_TIMEOUT_MS_CONFIG, ConfigDef.Type.LONG, 10_000L, ConfigDef.Range.atLeast(0), ConfigDef.Importance.LOW, "How long configure() waits for schema warm-up before falling back to lazy loading")
+            .define(SCHEMA_SNAPSHOT_PATH_CONFIG, ConfigDef.Type.STRING, null, ConfigDef.Importance.LOW, "File to persist resolved schemas to, e.g. /var/lib/kafka-connect/outbox-schemas.snapshot, so restarts do not depend on Schema Registry")
+            .define(SCHEMA_SNAPSHOT_MAX_AGE_MS_CONFIG, ConfigDef.Type.LONG, SchemaSnapshot.DEFAULT_MAX_AGE_MS, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW,
+                    "How long a snapshot entry is kept after it was last written, so subjects no task holds any more (deleted or renamed) leave a shared snapshot")
+            .define(PAYLOAD_FORMAT_CONFIG, ConfigDef.Type.STRING, PAYLOAD_FORMAT_JSON,
+                    ConfigDef.ValidString.in(PAYLOAD_FORMAT_JSON, PAYLOAD_FORMAT_AVRO, PAYLOAD_FORMAT_AUTO), ConfigDef.Importance.MEDIUM,
+                    "Format of the Payload column: json, avro (Confluent wire format, passed through as bytes; use ByteArrayConverter for values) or auto (wire format when the magic byte is present, JSON otherwise; wire-format rows are decoded to a Struct so both kinds share the value converter). "
+                            + "The schema id of a wire-format payload must be registered under the destination topic's -value subject")
+            .define(PAYLOAD_ENCODING_CONFIG, ConfigDef.Type.STRING, "none",
+                    ConfigDef.ValidString.in("none", "gzip", "snappy", "snappy-raw", "zstd", PAYLOAD_ENCODING_AUTO), ConfigDef.Importance.MEDIUM,
+                    "Compression of payloads: none, gzip, snappy (framing format), snappy-raw (one unframed block, never auto-detected), zstd, or auto to detect it from the magic bytes. "
+                            + "Compressed payloads in text columns must be base64; auto then looks for the magic bytes in the decoded prefix. With payload.format avro or auto, payloads are decompressed before the wire-format check")
+            .define(PAYLOAD_ENCODING_FIELD_CONFIG, ConfigDef.Type.STRING, "PayloadEncoding", ConfigDef.Importance.LOW,
+                    "Outbox column that, when present and set, overrides payload.encoding per row")
+            .define(PARTITIONER_CONFIG, ConfigDef.Type.STRING, PARTITIONER_SOURCE,
+                    ConfigDef.ValidString.in(PARTITIONER_SOURCE, PARTITIONER_KEY_HASH, PARTITIONER_PRODUCER), ConfigDef.Importance.MEDIUM,
+                    "Destination partition: source (copy the outbox record's partition), key-hash (murmur2 of Key over the destination's partition count) or producer (leave it to the producer). "
+                            + "key-hash matches the producer's default partitioner only when keys are written as plain UTF-8, i.e. with key.converter=org.apache.kafka.connect.storage.StringConverter")
+            .define(PARTITION_COUNTS_CONFIG, ConfigDef.Type.LIST, "", ConfigDef.Importance.LOW, "Destination partition counts for key-hash, e.g. 'orders:12,payments:6'")
+            .define(PARTITION_COUNT_BOOTSTRAP_SERVERS_CONFIG, ConfigDef.Type.STRING, null, ConfigDef.Importance.LOW,
+                    "Bootstrap servers used to discover partition counts not listed in partition.counts; further Admin client settings can be passed with the 'partition.count.admin.' prefix")
+            .define(PARTITION_COUNT_REFRESH_MS_CONFIG, ConfigDef.Type.LONG, 300_000L, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, "How often discovered partition counts are refreshed")
+            .define(TRACING_ENABLED_CONFIG, ConfigDef.Type.BOOLEAN, false, ConfigDef.Importance.LOW,
+                    "Emit OpenTelemetry spans for routing, parented to the traceparent in the Trace column, and add a 'traceparent' header")
+            .define(TRACING_SAMPLE_RATIO_CONFIG, ConfigDef.Type.DOUBLE, 0.01, ConfigDef.Range.between(0.0, 1.0), ConfigDef.Importance.LOW,
+                    "Fraction of traces to emit routing spans for, decided from the trace id"));
+
+    private final JsonFactory jsonFactory = new JsonFactory();
     private final AvroData avroData = new AvroData(1000);
-    private final Map<String, Schema> schemaCache = new ConcurrentHashMap<>();
+    private BinaryDecoder decoder; // Reused for every wire-format body; a transform instance runs on one task thread
 
     private SchemaRegistryClient schemaRegistryClient;
+    private SchemaCache schemaCache;
+    private SchemaCache schemasById; // Keyed by subject@id, ids never change so entries never expire
+    private SchemaSnapshot schemaSnapshot;
+    private final AtomicBoolean snapshotDirty = new AtomicBoolean();
+    private String payloadFormat;
+    private PayloadEncoding payloadEncoding; // null = auto
+    private String payloadEncodingField;
+    private String partitioner;
+    private TopicPartitionCounts partitionCounts;
+    private OutboxRouterMetrics metrics;
+    private OutboxTracing tracing; // Null unless tracing is enabled
+    private boolean timeStages;
 
     @Override
     public void configure(Map<String, ?> props) {
         SimpleConfig config = new SimpleConfig(CONFIG_DEF, props);
         String registryUrl = config.getString(SCHEMA_REGISTRY_URL_CONFIG);
+        payloadFormat = config.getString(PAYLOAD_FORMAT_CONFIG);
+        String encoding = config.getString(PAYLOAD_ENCODING_CONFIG);
+        payloadEncoding = PAYLOAD_ENCODING_AUTO.equals(encoding) ? null : PayloadEncoding.forName(encoding);
+        payloadEncodingField = config.getString(PAYLOAD_ENCODING_FIELD_CONFIG);
+        partitioner = config.getString(PARTITIONER_CONFIG);
+        if (PARTITIONER_KEY_HASH.equals(partitioner)) {
+            partitionCounts = createPartitionCounts(config);
+        }
 
         Map<String, Object> clientConfig = new HashMap<>();
 
@@ -80,57 +179,230 @@ public class OutboxEventRouter<R extends ConnectRecord<R>> implements Transforma
             clientConfig.put("schema.registry.ssl.truststore.password", truststorePassword);
         }
 
-        this.schemaRegistryClient = new CachedSchemaRegistryClient(registryUrl, 1000, clientConfig);
+        // schemaCache owns expiry and refresh, so "latest" lookups must always reach the registry
+        clientConfig.put("latest.cache.ttl.sec", 0L);
+
+        if (registryUrl.startsWith(MOCK_REGISTRY_URL_PREFIX)) {
+            // Same convention as the Confluent serializers, used by tests
+            this.schemaRegistryClient = MockSchemaRegistry.getClientForScope(registryUrl.substring(MOCK_REGISTRY_URL_PREFIX.length()));
+        } else {
+            this.schemaRegistryClient = new CachedSchemaRegistryClient(registryUrl, 1000, clientConfig);
+        }
+        this.schemaCache = new SchemaCache(this::loadSchema,
+                config.getLong(SCHEMA_CACHE_TTL_MS_CONFIG),
+                config.getLong(SCHEMA_CACHE_RETRY_BACKOFF_MS_CONFIG),
+                config.getLong(SCHEMA_CACHE_RETRY_BACKOFF_MAX_MS_CONFIG),
+                config.getInt(SCHEMA_CACHE_MAX_SIZE_CONFIG),
+                this::onSchemaChanged);
+        this.schemasById = new SchemaCache(this::loadSchemaById, 0L,
+                config.getLong(SCHEMA_CACHE_RETRY_BACKOFF_MS_CONFIG),
+                config.getLong(SCHEMA_CACHE_RETRY_BACKOFF_MAX_MS_CONFIG),
+                config.getInt(SCHEMA_CACHE_MAX_SIZE_CONFIG));
+        this.metrics = new OutboxRouterMetrics(config, schemaCache);
+        this.tracing = config.getBoolean(TRACING_ENABLED_CONFIG) ? OutboxTracing.global(config.getDouble(TRACING_SAMPLE_RATIO_CONFIG)) : null;
+        this.timeStages = metrics.enabled() || tracing != null;
+
+        String snapshotPath = config.getString(SCHEMA_SNAPSHOT_PATH_CONFIG);
+        if (snapshotPath != null) {
+            this.schemaSnapshot = new SchemaSnapshot(Paths.get(snapshotPath), config.getLong(SCHEMA_SNAPSHOT_MAX_AGE_MS_CONFIG));
+            restoreSnapshot();
+        }
+
+        warmUpSchemas(config);
+        writeSnapshot();
 
         log.info("OutboxEventRouter configured with schema registry URL: {}", registryUrl);
     }
 
+    private TopicPartitionCounts createPartitionCounts(SimpleConfig config) {
+        Map<String, Object> adminConfig = null;
+        String bootstrapServers = config.getString(PARTITION_COUNT_BOOTSTRAP_SERVERS_CONFIG);
+        if (bootstrapServers != null) {
+            adminConfig = new HashMap<>(config.originalsWithPrefix(PARTITION_COUNT_ADMIN_PREFIX));
+            adminConfig.put("bootstrap.servers", bootstrapServers);
+            adminConfig.putIfAbsent("client.id", "outbox-event-router-partition-counts");
+        }
+
+        Map<String, Integer> configured;
+        try {
+            configured = TopicPartitionCounts.parse(config.getList(PARTITION_COUNTS_CONFIG));
+        } catch (IllegalArgumentException e) {
+            throw new ConfigException(PARTITION_COUNTS_CONFIG, config.getList(PARTITION_COUNTS_CONFIG), e.getMessage());
+        }
+        return new TopicPartitionCounts(configured, adminConfig, config.getLong(PARTITION_COUNT_REFRESH_MS_CONFIG));
+    }
+
+    /**
+     * Seeds the schema cache from the local snapshot. Restored schemas are usable straight away
+     * and revalidated against the registry in the background.
+     */
+    private void restoreSnapshot() {
+        List<SchemaSnapshot.Entry> entries;
+        try {
+            entries = schemaSnapshot.read();
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable schema snapshot {}", schemaSnapshot.path(), e);
+            return;
+        }
+
+        for (SchemaSnapshot.Entry entry : entries) {
+            try {
+                schemaCache.seed(resolveSchema(entry.subject, entry.id, entry.version, entry.schema));
+            } catch (Exception e) {
+                log.warn("Ignoring snapshot entry for subject {}", entry.subject, e);
+            }
+        }
+        log.info("Restored {} schemas from snapshot {}", entries.size(), schemaSnapshot.path());
+    }
+
+    private void onSchemaChanged(RegisteredSchema schema) {
+        if (schemaSnapshot != null && snapshotDirty.compareAndSet(false, true)) {
+            schemaCache.runInBackground(this::writeSnapshot);
+        }
+    }
+
+    private synchronized void writeSnapshot() {
+        if (schemaSnapshot == null || !snapshotDirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            schemaSnapshot.write(schemaCache.schemas());
+        } catch (IOException e) {
+            log.warn("Failed to write schema snapshot {}", schemaSnapshot.path(), e);
+        }
+    }
+
+    /**
+     * Loads the configured subjects up front so the first record of each outbox topic after a
+     * rebalance or redeploy does not pay a registry round trip inside apply().
+     */
+    private void warmUpSchemas(SimpleConfig config) {
+        Set<String> subjects = new LinkedHashSet<>(config.getList(SCHEMA_WARMUP_SUBJECTS_CONFIG));
+        String prefix = config.getString(SCHEMA_WARMUP_SUBJECT_PREFIX_CONFIG);
+        if (subjects.isEmpty() && prefix == null) {
+            return;
+        }
+
+        long timeoutMs = config.getLong(SCHEMA_WARMUP_TIMEOUT_MS_CONFIG);
+        long start = System.currentTimeMillis();
+
+        if (prefix != null) {
+            try {
+                for (String subject : schemaRegistryClient.getAllSubjects()) {
+                    if (subject.startsWith(prefix)) {
+                        subjects.add(subject);
+                    }
+                }
+            } catch (IOException | RestClientException e) {
+                log.warn("Could not list subjects with prefix {} for schema warm-up", prefix, e);
+            }
+        }
+
+        long remainingMs = Math.max(0, timeoutMs - (System.currentTimeMillis() - start));
+        schemaCache.warmUp(subjects, config.getInt(SCHEMA_WARMUP_PARALLELISM_CONFIG), remainingMs);
+    }
+
     @Override
     public R apply(R record) {
         if (record.value() == null) {
             return record;
         }
 
+        RoutedEvent routed = route(record, record.value());
+        if (routed == null) {
+            return record;
+        }
+        return record.newRecord(
+                routed.topic,
+                routed.partition,
+                org.apache.kafka.connect.data.Schema.OPTIONAL_STRING_SCHEMA,
+                routed.key,
+                routed.valueSchema,
+                routed.value,
+                record.timestamp(),
+                routed.headers
+        );
+    }
+
+    /**
+     * Routes one outbox row without building a record, so callers that transform it further can
+     * build the final record once. Returns null when the row lacks the fields needed to route it.
+     */
+    RoutedEvent route(R record, Object outboxRow) {
+        long start = metrics.start();
+        OutboxTracing.RouteSpan span = null;
         try {
-            Struct outboxStruct = (Struct) record.value();
+            Struct outboxStruct = (Struct) outboxRow;
 
             String topic = getFieldValue(outboxStruct, TOPIC_FIELD);
             String id = getFieldValue(outboxStruct, ID_FIELD);
             String payloadType = getFieldValue(outboxStruct, PAYLOAD_TYPE_FIELD);
-            String payload = getFieldValue(outboxStruct, PAYLOAD_FIELD);
+            Object payload = binaryOrText(getRawFieldValue(outboxStruct, PAYLOAD_FIELD));
             String trace = getFieldValue(outboxStruct, TRACE_FIELD);
             String key = getFieldValue(outboxStruct, KEY_FIELD);
 
             if (topic == null || payloadType == null || payload == null) {
                 log.warn("Skipping record with missing required fields: topic={}, payloadType={}, payload={}", topic, payloadType, payload != null ? "present" : "null");
-                return record;
+                metrics.recordApply(start, true); // Passed through unchanged
+                return null;
             }
 
-            Schema avroSchema = fetchAvroSchema(topic, payloadType);
-            Struct payloadStruct = jsonToStruct(payload, avroSchema);
-
             ConnectHeaders headers = new ConnectHeaders();
             if (id != null) headers.addString("id", id);
             if (trace != null) headers.addString("trace", trace);
             if (payloadType != null) headers.addString("payload-type", payloadType);
+            if (tracing != null) span = tracing.start(trace, id, topic, payloadType, headers);
+
+            Integer partition = destinationPartition(record, topic, key);
+
+            RoutedEvent routed;
+            long lookupStart = now();
+            long parseStart;
+            PayloadEncoding encoding = payloadEncoding(outboxStruct, payload);
+            if (encoding != PayloadEncoding.NONE && !PAYLOAD_FORMAT_JSON.equals(payloadFormat)) {
+                // The magic byte is inside the compressed body; JSON rows then parse the result as is
+                payload = decompress(payload, encoding);
+                encoding = PayloadEncoding.NONE;
+            }
+            byte[] wirePayload = wireFormatPayload(payload);
+            if (wirePayload != null) {
+                RegisteredSchema schema = fetchAvroSchemaById(topic, ByteBuffer.wrap(wirePayload).getInt(1));
+                parseStart = now();
+                if (PAYLOAD_FORMAT_AVRO.equals(payloadFormat)) {
+                    // Already Avro for this topic: hand the bytes on untouched
+                    routed = new RoutedEvent(topic, partition, key, org.apache.kafka.connect.data.Schema.BYTES_SCHEMA, wirePayload, headers);
+                } else {
+                    SchemaAndValue decoded = wireFormatToStruct(wirePayload, schema);
+                    routed = new RoutedEvent(topic, partition, key, decoded.schema(), decoded.value(), headers);
+                }
+            } else {
+                RegisteredSchema schema = fetchAvroSchema(topic, payloadType);
+                parseStart = now();
+                Struct payloadStruct = jsonToStruct(payload, encoding, schema);
+                routed = new RoutedEvent(topic, partition, key, schema.connectSchema(), payloadStruct, headers);
+            }
+            long parsed = now();
 
-            return record.newRecord(
-                    topic,
-                    record.kafkaPartition(),
-                    org.apache.kafka.connect.data.Schema.OPTIONAL_STRING_SCHEMA,
-                    key,
-                    payloadStruct.schema(),
-                    payloadStruct,
-                    record.timestamp(),
-                    headers
-            );
+            metrics.recordStages(parseStart - lookupStart, parsed - parseStart);
+            if (span != null) span.end(parseStart - lookupStart, parsed - parseStart);
+            metrics.recordApply(start, true);
+            return routed;
 
         } catch (Exception e) {
+            metrics.recordError(start);
+            if (span != null) span.fail(e);
             log.error("Error processing outbox record", e);
             throw new ConnectException("Failed to process outbox record", e);
         }
     }
 
+    /**
+     * Returns a timestamp for stage timings, or 0 when neither metrics nor tracing want them.
+     */
+    private long now() {
+        return timeStages ? System.nanoTime() : 0L;
+    }
+
     private String getFieldValue(Struct struct, String fieldName) {
         Field field = struct.schema().field(fieldName);
         if (field == null) return null;
@@ -138,72 +410,185 @@ public class OutboxEventRouter<R extends ConnectRecord<R>> implements Transforma
         return value != null ? value.toString() : null;
     }
 
-    private Schema fetchAvroSchema(String topic, String payloadType) {
+    /**
+     * With key-hash, keys are hashed exactly like Kafka's default partitioner hashes key bytes
+     * (murmur2 over the UTF-8 Key), so every event of one key lands on one partition. That only
+     * agrees with the serialized key, and with other producers of the topic, when the key
+     * converter is StringConverter; JSON or Avro converters add quoting or a wire-format header.
+     */
+    private Integer destinationPartition(R record, String topic, String key) {
+        if (PARTITIONER_SOURCE.equals(partitioner)) {
+            return record.kafkaPartition();
+        }
+        if (key == null || partitionCounts == null) {
+            return null;
+        }
+        Integer count = partitionCounts.partitionCount(topic);
+        if (count == null || count <= 0) {
+            return null;
+        }
+        return Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8))) % count;
+    }
+
+    private Object getRawFieldValue(Struct struct, String fieldName) {
+        Field field = struct.schema().field(fieldName);
+        return field != null ? struct.get(field) : null;
+    }
+
+    /**
+     * Normalises binary payloads to byte[]; anything else is left as is and read as text.
+     */
+    private Object binaryOrText(Object payload) {
+        if (payload instanceof ByteBuffer) {
+            ByteBuffer buffer = ((ByteBuffer) payload).duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        }
+        return payload;
+    }
+
+    private PayloadEncoding payloadEncoding(Struct outboxStruct, Object payload) {
+        String rowEncoding = getFieldValue(outboxStruct, payloadEncodingField);
+        if (rowEncoding != null) {
+            return PayloadEncoding.forName(rowEncoding);
+        }
+        if (payloadEncoding != null) {
+            return payloadEncoding;
+        }
+        return payload instanceof byte[]
+                ? PayloadEncoding.detect((byte[]) payload)
+                : PayloadEncoding.detectBase64(payload.toString());
+    }
+
+    /**
+     * Returns the payload as Confluent wire-format bytes (magic byte, 4-byte schema id, body) when
+     * the configured format allows it and the payload looks like one, otherwise null.
+     */
+    private byte[] wireFormatPayload(Object payload) {
+        if (PAYLOAD_FORMAT_JSON.equals(payloadFormat)) {
+            return null;
+        }
+
+        byte[] bytes = payload instanceof byte[] ? (byte[]) payload : null;
+        boolean wireFormat = bytes != null && bytes.length > WIRE_FORMAT_HEADER_SIZE && bytes[0] == WIRE_FORMAT_MAGIC_BYTE;
+        if (!wireFormat && PAYLOAD_FORMAT_AVRO.equals(payloadFormat)) {
+            throw new ConnectException("Payload is not Confluent wire-format Avro");
+        }
+        return wireFormat ? bytes : null;
+    }
+
+    private RegisteredSchema fetchAvroSchema(String topic, String payloadType) {
         String subject = topic + "-value"; // TopicNameStrategy
-        return schemaCache.computeIfAbsent(subject, key -> {
-            try {
-                String schemaStr = schemaRegistryClient.getLatestSchemaMetadata(key).getSchema();
-                return new Schema.Parser().parse(schemaStr);
-            } catch (IOException | RestClientException e) {
-                throw new ConnectException("Failed to fetch Avro schema for subject: " + key, e);
-            }
-        });
+        return schemaCache.get(subject);
     }
 
-    private Struct jsonToStruct(String jsonString, Schema avroSchema) {
+    /**
+     * Resolves the writer schema of a wire-format payload through its own cache, so unknown ids
+     * fail fast with backoff instead of calling the registry for every record.
+     */
+    private RegisteredSchema fetchAvroSchemaById(String topic, int schemaId) {
+        String subject = topic + "-value"; // TopicNameStrategy
+        return schemasById.get(subject + SUBJECT_ID_SEPARATOR + schemaId);
+    }
+
+    /**
+     * Loads one schema id and checks that it is registered under the destination's subject, so
+     * a payload written for another topic is not routed with a foreign schema.
+     */
+    private RegisteredSchema loadSchemaById(String subjectAndId, RegisteredSchema previous) throws IOException, RestClientException {
+        if (previous != null) {
+            return previous; // Ids are immutable
+        }
+        int separator = subjectAndId.lastIndexOf(SUBJECT_ID_SEPARATOR);
+        String subject = subjectAndId.substring(0, separator);
+        int id = Integer.parseInt(subjectAndId.substring(separator + 1));
+
+        ParsedSchema parsed = schemaRegistryClient.getSchemaBySubjectAndId(subject, id);
+        if (!(parsed.rawSchema() instanceof Schema)) {
+            throw new ConnectException("Schema id " + id + " is not an Avro schema");
+        }
+        int version;
         try {
-            JsonNode jsonNode = objectMapper.readTree(jsonString);
+            version = schemaRegistryClient.getVersion(subject, parsed);
+        } catch (RestClientException e) {
+            throw new ConnectException("Schema id " + id + " is not registered under subject " + subject, e);
+        }
+        return resolveSchema(subject, id, version, (Schema) parsed.rawSchema());
+    }
 
-            GenericRecord avroRecord = new GenericData.Record(avroSchema);
-            for (Schema.Field field : avroSchema.getFields()) {
-                JsonNode fieldValue = jsonNode.get(field.name());
-                avroRecord.put(field.name(), parseAvroValue(field.schema(), fieldValue));
-            }
+    private RegisteredSchema loadSchema(String subject, RegisteredSchema previous) throws IOException, RestClientException {
+        SchemaMetadata metadata = schemaRegistryClient.getLatestSchemaMetadata(subject);
+        if (previous != null && previous.id() == metadata.getId()) {
+            return previous; // Unchanged, keep the compiled reader
+        }
+        return resolveSchema(subject, metadata.getId(), metadata.getVersion(), metadata.getSchema());
+    }
+
+    /**
+     * Parses a registry schema and derives its Connect schema once, so the per-record path never
+     * goes back through AvroData. The JSON and Avro readers are built on first use.
+     */
+    private RegisteredSchema resolveSchema(String subject, int id, int version, String schemaStr) {
+        return resolveSchema(subject, id, version, new Schema.Parser().parse(schemaStr));
+    }
 
-            // Convert Avro GenericRecord to Kafka Connect Struct
-            return (Struct) avroData.toConnectData(avroSchema, avroRecord).value();
+    private RegisteredSchema resolveSchema(String subject, int id, int version, Schema avroSchema) {
+        org.apache.kafka.connect.data.Schema connectSchema = avroData.toConnectSchema(avroSchema);
+        return new RegisteredSchema(subject, id, version, avroSchema, connectSchema);
+    }
+
+    /**
+     * Decodes the Avro body of a wire-format payload into the same Connect value AvroConverter
+     * would produce for it.
+     */
+    private SchemaAndValue wireFormatToStruct(byte[] wirePayload, RegisteredSchema schema) throws IOException {
+        decoder = DecoderFactory.get().binaryDecoder(
+                wirePayload, WIRE_FORMAT_HEADER_SIZE, wirePayload.length - WIRE_FORMAT_HEADER_SIZE, decoder);
+        Object value = schema.datumReader().read(null, decoder);
+        return avroData.toConnectData(schema.avroSchema(), value);
+    }
 
+    /**
+     * Streams the JSON payload straight into a Connect Struct using the reader compiled for the schema.
+     */
+    private Struct jsonToStruct(Object payload, PayloadEncoding encoding, RegisteredSchema schema) {
+        try (JsonParser parser = createParser(payload, encoding)) {
+            return schema.reader().read(parser);
         } catch (Exception e) {
             throw new ConnectException("Failed to convert JSON to Struct using Avro schema", e);
         }
     }
 
-    private Object parseAvroValue(Schema fieldSchema, JsonNode jsonNode) {
-        Schema.Type type = fieldSchema.getType();
+    /**
+     * Compressed payloads are decompressed as a stream underneath the parser, so the JSON document
+     * is never held as a whole; closing the parser closes (and returns the buffers of) the stream.
+     */
+    private JsonParser createParser(Object payload, PayloadEncoding encoding) throws IOException {
+        if (encoding != PayloadEncoding.NONE) {
+            return jsonFactory.createParser(encoding.decode(new ByteArrayInputStream(compressedBytes(payload))));
+        }
+        if (payload instanceof byte[]) {
+            return jsonFactory.createParser((byte[]) payload); // UTF-8 JSON stored as binary, no String copy
+        }
+        return jsonFactory.createParser(payload.toString());
+    }
 
-        if (type == Schema.Type.UNION) {
-            for (Schema subSchema : fieldSchema.getTypes()) {
-                if (subSchema.getType() == Schema.Type.NULL) {
-                    if (jsonNode == null || jsonNode.isNull()) {
-                        return null;
-                    }
-                } else {
-                    return parseAvroValue(subSchema, jsonNode);
-                }
-            }
-            throw new ConnectException("Could not resolve UNION schema for value: " + jsonNode);
-        }
-
-        if (jsonNode == null || jsonNode.isNull()) return null;
-
-        switch (type) {
-            case STRING: return jsonNode.asText();
-            case INT: return jsonNode.asInt();
-            case LONG: return jsonNode.asLong();
-            case FLOAT: return (float) jsonNode.asDouble();
-            case DOUBLE: return jsonNode.asDouble();
-            case BOOLEAN: return jsonNode.asBoolean();
-            case BYTES:
-                try {
-                    return jsonNode.binaryValue();
-                } catch (IOException e) {
-                    throw new RuntimeException("Invalid byte field", e);
-                }
-            default:
-                throw new UnsupportedOperationException("Unsupported Avro type: " + type);
+    /**
+     * Decompresses a whole payload, for the formats that must look at its first bytes.
+     */
+    private static byte[] decompress(Object payload, PayloadEncoding encoding) throws IOException {
+        try (InputStream in = encoding.decode(new ByteArrayInputStream(compressedBytes(payload)))) {
+            return in.readAllBytes();
         }
     }
 
+    private static byte[] compressedBytes(Object payload) {
+        return payload instanceof byte[]
+                ? (byte[]) payload
+                : Base64.getDecoder().decode(payload.toString()); // Text columns hold base64
+    }
+
     @Override
     public ConfigDef config() {
         return CONFIG_DEF;
@@ -211,7 +596,40 @@ public class OutboxEventRouter<R extends ConnectRecord<R>> implements Transforma
 
     @Override
     public void close() {
-        schemaCache.clear();
+        if (schemasById != null) {
+            schemasById.close();
+        }
+        if (metrics != null) {
+            metrics.close();
+        }
+        if (partitionCounts != null) {
+            partitionCounts.close();
+        }
+        if (schemaCache != null) {
+            writeSnapshot();
+            schemaCache.close();
+        }
         log.info("OutboxEventRouter closed and schema cache cleared");
     }
+
+    /**
+     * Destination, key, value and headers of a routed outbox row.
+     */
+    static final class RoutedEvent {
+        final String topic;
+        final Integer partition;
+        final String key;
+        final org.apache.kafka.connect.data.Schema valueSchema;
+        final Object value;
+        final ConnectHeaders headers;
+
+        RoutedEvent(String topic, Integer partition, String key, org.apache.kafka.connect.data.Schema valueSchema, Object value, ConnectHeaders headers) {
+            this.topic = topic;
+            this.partition = partition;
+            this.key = key;
+            this.valueSchema = valueSchema;
+            this.value = value;
+            this.headers = headers;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+package com.twk.transforms;
+
+import org.apache.kafka.connect.transforms.util.SimpleConfig;
+
+/**
+ * OutboxEventRouter metrics: the transform counters plus schema cache statistics and the time
+ * spent resolving schemas and parsing payloads, so a slowdown can be pinned on the registry or on
+ * decoding.
+ */
+public class OutboxRouterMetrics extends TransformMetrics implements OutboxRouterMetricsMBean {
+
+    private final SchemaCache schemaCache;
+    private final LatencyHistogram schemaLookup = new LatencyHistogram();
+    private final LatencyHistogram payloadParse = new LatencyHistogram();
+
+    OutboxRouterMetrics(SimpleConfig config, SchemaCache schemaCache) {
+        super("OutboxEventRouter", config);
+        this.schemaCache = schemaCache;
+    }
+
+    void recordStages(long schemaLookupNanos, long payloadParseNanos) {
+        if (enabled()) {
+            schemaLookup.record(schemaLookupNanos);
+            payloadParse.record(payloadParseNanos);
+        }
+    }
+
+    @Override
+    public long getSchemaCacheHits() {
+        return schemaCache.hits();
+    }
+
+    @Override
+    public long getSchemaCacheMisses() {
+        return schemaCache.misses();
+    }
+
+    @Override
+    public int getSchemaCacheSize() {
+        return schemaCache.size();
+    }
+
+    @Override
+    public double getSchemaLoadTimeMeanMillis() {
+        return schemaCache.loadTimes().mean() / 1_000_000.0;
+    }
+
+    @Override
+    public double getSchemaLoadTimeMaxMillis() {
+        return schemaCache.loadTimes().max() / 1_000_000.0;
+    }
+
+    @Override
+    public double getSchemaLookupP99Micros() {
+        return micros(schemaLookup.percentile(0.99));
+    }
+
+    @Override
+    public double getPayloadParseMeanMicros() {
+        return micros(payloadParse.mean());
+    }
+
+    @Override
+    public double getPayloadParseP99Micros() {
+        return micros(payloadParse.percentile(0.99));
+    }
+}
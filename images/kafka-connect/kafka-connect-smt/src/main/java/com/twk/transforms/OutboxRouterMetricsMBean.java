@@ -0,0 +1,25 @@
+package com.twk.transforms;
+
+/**
+ * {@link TransformMetricsMBean} plus the OutboxEventRouter's schema cache and per-stage timings.
+ */
+public interface OutboxRouterMetricsMBean extends TransformMetricsMBean {
+
+    long getSchemaCacheHits();
+
+    long getSchemaCacheMisses();
+
+    int getSchemaCacheSize();
+
+    double getSchemaLoadTimeMeanMillis();
+
+    double getSchemaLoadTimeMaxMillis();
+
+    /** Time to resolve the payload's schema, including cache hits. */
+    double getSchemaLookupP99Micros();
+
+    /** Time to decode the payload into a Struct. */
+    double getPayloadParseMeanMicros();
+
+    double getPayloadParseP99Micros();
+}
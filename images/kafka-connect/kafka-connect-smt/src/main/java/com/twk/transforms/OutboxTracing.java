@@ -0,0 +1,138 @@
+package com.twk.transforms;
+
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapSetter;
+import org.apache.kafka.connect.header.ConnectHeaders;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Head-sampled routing spans for {@link OutboxEventRouter}, parented to the W3C {@code traceparent}
+ * the application stored in the outbox row's Trace column. The gap between the application's span
+ * and the routing span is the time the event spent in the outbox.
+ * <p>
+ * The sampling decision is taken from the trace id, like {@code TraceIdRatioBased}, so every hop
+ * of a trace agrees; the SDK's own sampler still applies to the spans that pass it. Unsampled
+ * records only get the row's traceparent copied to a header. The router creates this class only
+ * when tracing is enabled, so the OpenTelemetry API need not be on the classpath otherwise.
+ */
+final class OutboxTracing {
+
+    static final String TRACEPARENT_HEADER = "traceparent";
+
+    private static final String INSTRUMENTATION_NAME = "com.twk.transforms.outbox";
+    private static final String SPAN_NAME = "outbox route";
+
+    private static final AttributeKey<String> MESSAGING_SYSTEM = AttributeKey.stringKey("messaging.system");
+    private static final AttributeKey<String> DESTINATION = AttributeKey.stringKey("messaging.destination.name");
+    private static final AttributeKey<String> MESSAGE_ID = AttributeKey.stringKey("messaging.message.id");
+    private static final AttributeKey<String> PAYLOAD_TYPE = AttributeKey.stringKey("outbox.payload_type");
+    private static final AttributeKey<Long> SCHEMA_LOOKUP_MICROS = AttributeKey.longKey("outbox.schema_lookup_us");
+    private static final AttributeKey<Long> PAYLOAD_PARSE_MICROS = AttributeKey.longKey("outbox.payload_parse_us");
+
+    private static final TextMapGetter<String> TRACE_COLUMN = new TextMapGetter<String>() {
+        @Override
+        public Iterable<String> keys(String carrier) {
+            return Collections.singletonList(TRACEPARENT_HEADER);
+        }
+
+        @Override
+        public String get(String carrier, String key) {
+            return TRACEPARENT_HEADER.equals(key) ? carrier : null;
+        }
+    };
+
+    private static final TextMapSetter<ConnectHeaders> HEADERS = (headers, key, value) -> headers.addString(key, value);
+
+    private final Tracer tracer;
+    private final W3CTraceContextPropagator propagator = W3CTraceContextPropagator.getInstance();
+    private final long idUpperBound;
+
+    OutboxTracing(OpenTelemetry openTelemetry, double sampleRatio) {
+        this.tracer = openTelemetry.getTracer(INSTRUMENTATION_NAME);
+        if (sampleRatio <= 0.0) {
+            idUpperBound = Long.MIN_VALUE;
+        } else if (sampleRatio >= 1.0) {
+            idUpperBound = Long.MAX_VALUE;
+        } else {
+            idUpperBound = (long) (sampleRatio * Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Uses the OpenTelemetry instance installed by the Java agent, or a no-op one without it.
+     */
+    static OutboxTracing global(double sampleRatio) {
+        return new OutboxTracing(GlobalOpenTelemetry.get(), sampleRatio);
+    }
+
+    /**
+     * Starts a routing span for a sampled record and writes its context to the {@code traceparent}
+     * header. Returns null for unsampled records, whose Trace value is propagated unchanged.
+     */
+    RouteSpan start(String trace, String id, String topic, String payloadType, ConnectHeaders headers) {
+        Context parent = trace != null ? propagator.extract(Context.root(), trace, TRACE_COLUMN) : Context.root();
+        SpanContext parentSpan = Span.fromContext(parent).getSpanContext();
+
+        if (!sampled(parentSpan)) {
+            if (parentSpan.isValid()) {
+                headers.addString(TRACEPARENT_HEADER, trace);
+            }
+            return null;
+        }
+
+        Span span = tracer.spanBuilder(SPAN_NAME)
+                .setParent(parent)
+                .setSpanKind(SpanKind.INTERNAL)
+                .setAttribute(MESSAGING_SYSTEM, "kafka")
+                .setAttribute(DESTINATION, topic)
+                .setAttribute(PAYLOAD_TYPE, payloadType)
+                .startSpan();
+        if (id != null) {
+            span.setAttribute(MESSAGE_ID, id);
+        }
+        propagator.inject(parent.with(span), headers, HEADERS);
+        return new RouteSpan(span);
+    }
+
+    private boolean sampled(SpanContext parentSpan) {
+        long randomPart = parentSpan.isValid()
+                ? Long.parseUnsignedLong(parentSpan.getTraceId().substring(16), 16)
+                : ThreadLocalRandom.current().nextLong();
+        return Math.abs(randomPart) < idUpperBound;
+    }
+
+    /**
+     * A started routing span, ended once the record is routed or has failed.
+     */
+    static final class RouteSpan {
+        private final Span span;
+
+        private RouteSpan(Span span) {
+            this.span = span;
+        }
+
+        void end(long schemaLookupNanos, long payloadParseNanos) {
+            span.setAttribute(SCHEMA_LOOKUP_MICROS, schemaLookupNanos / 1_000);
+            span.setAttribute(PAYLOAD_PARSE_MICROS, payloadParseNanos / 1_000);
+            span.end();
+        }
+
+        void fail(Throwable error) {
+            span.recordException(error);
+            span.setStatus(StatusCode.ERROR);
+            span.end();
+        }
+    }
+}
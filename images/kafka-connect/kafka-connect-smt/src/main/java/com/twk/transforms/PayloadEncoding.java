@@ -0,0 +1,137 @@
+package com.twk.transforms;
+
+import com.github.luben.zstd.RecyclingBufferPool;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.apache.kafka.connect.errors.DataException;
+import org.xerial.snappy.Snappy;
+import org.xerial.snappy.SnappyFramedInputStream;
+import org.xerial.snappy.pool.DefaultPoolFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Compression applied to the outbox Payload column. Each encoding wraps the raw payload in a
+ * decompressing stream that the JSON parser reads from directly, so the decompressed document is
+ * never materialised as a byte[] or String. Gzip reuses a per-thread Inflater and input buffer
+ * ({@link GzipPayloadInputStream}); snappy and zstd draw their buffers from the libraries' shared
+ * pools. Raw Snappy is the exception: the block format has no streaming form.
+ */
+enum PayloadEncoding {
+
+    NONE {
+        @Override
+        InputStream decode(InputStream in) {
+            return in;
+        }
+    },
+
+    GZIP {
+        @Override
+        InputStream decode(InputStream in) throws IOException {
+            return new GzipPayloadInputStream(in);
+        }
+    },
+
+    /**
+     * The Snappy framing format (x-snappy-framed), which is what non-Java Snappy libraries write
+     * for streams.
+     */
+    SNAPPY {
+        @Override
+        InputStream decode(InputStream in) throws IOException {
+            return new SnappyFramedInputStream(in, DefaultPoolFactory.getDefaultPool());
+        }
+    },
+
+    /**
+     * A single raw Snappy block (Snappy.compress), as written by producers that do not frame.
+     * It has no magic bytes, so it is never auto-detected.
+     */
+    SNAPPY_RAW {
+        @Override
+        InputStream decode(InputStream in) throws IOException {
+            return new ByteArrayInputStream(Snappy.uncompress(in.readAllBytes()));
+        }
+    },
+
+    ZSTD {
+        @Override
+        InputStream decode(InputStream in) throws IOException {
+            return new ZstdCompressorInputStream(in, RecyclingBufferPool.INSTANCE);
+        }
+    };
+
+    /**
+     * Base64 characters decoded to look for magic bytes in text payloads: 12 bytes, enough for
+     * the longest magic (Snappy's 10).
+     */
+    private static final int BASE64_MAGIC_CHARS = 16;
+
+    abstract InputStream decode(InputStream in) throws IOException;
+
+    /**
+     * Parses a configured or per-row encoding name, e.g. "gzip" or "snappy-raw". "identity" and
+     * an empty value mean NONE.
+     */
+    static PayloadEncoding forName(String name) {
+        String normalized = name.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+        if (normalized.isEmpty() || normalized.equals("IDENTITY")) {
+            return NONE;
+        }
+        try {
+            return valueOf(normalized);
+        } catch (IllegalArgumentException e) {
+            throw new DataException("Unknown payload encoding: " + name);
+        }
+    }
+
+    /**
+     * Detects the encoding from the stream's magic bytes, falling back to NONE.
+     */
+    static PayloadEncoding detect(byte[] payload) {
+        if (startsWith(payload, 0x1f, 0x8b)) {
+            return GZIP;
+        }
+        if (startsWith(payload, 0x28, 0xb5, 0x2f, 0xfd)) {
+            return ZSTD;
+        }
+        if (startsWith(payload, 0xff, 0x06, 0x00, 0x00, 0x73, 0x4e, 0x61, 0x50, 0x70, 0x59)) {
+            return SNAPPY;
+        }
+        return NONE;
+    }
+
+    /**
+     * Detects the encoding of a base64 payload from a text column by decoding only its first
+     * characters. Text that is not base64, such as JSON, comes back as NONE.
+     */
+    static PayloadEncoding detectBase64(String payload) {
+        int length = Math.min(BASE64_MAGIC_CHARS, payload.length()) & ~3; // Whole 4-character groups
+        if (length == 0) {
+            return NONE;
+        }
+        byte[] prefix;
+        try {
+            prefix = Base64.getDecoder().decode(payload.substring(0, length));
+        } catch (IllegalArgumentException e) {
+            return NONE; // Not base64, e.g. '{'
+        }
+        return detect(prefix);
+    }
+
+    private static boolean startsWith(byte[] payload, int... magic) {
+        if (payload.length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((payload[i] & 0xff) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
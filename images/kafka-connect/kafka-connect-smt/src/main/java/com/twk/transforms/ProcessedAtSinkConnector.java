@@ -0,0 +1,97 @@
+package com.twk.transforms;
+
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.connect.connector.Task;
+import org.apache.kafka.connect.sink.SinkConnector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sink for the Id/ProcessedAt records produced by {@link UpdateProcessedAt}. Instead of one
+ * UPDATE per record, each task buffers acknowledgements and writes them to the outbox table as a
+ * single set-based statement per batch. The SQL Server JDBC driver must sit in the same plugin
+ * directory as this jar (see the kafka-connect Dockerfile).
+ */
+public class ProcessedAtSinkConnector extends SinkConnector {
+
+    static final String CONNECTION_URL_CONFIG = "connection.url";
+    static final String CONNECTION_USER_CONFIG = "connection.user";
+    static final String CONNECTION_PASSWORD_CONFIG = "connection.password";
+    static final String TABLE_NAME_CONFIG = "table.name";
+    static final String ID_COLUMN_CONFIG = "id.column";
+    static final String PROCESSED_AT_COLUMN_CONFIG = "processed.at.column";
+    static final String ID_COLUMN_TYPE_CONFIG = "id.column.type";
+    static final String PROCESSED_AT_COLUMN_TYPE_CONFIG = "processed.at.column.type";
+    static final String STATEMENT_STYLE_CONFIG = "statement.style";
+    static final String BATCH_SIZE_CONFIG = "batch.size";
+    static final String LINGER_MS_CONFIG = "linger.ms";
+    static final String RETRY_BACKOFF_MS_CONFIG = "retry.backoff.ms";
+    static final String DEDUPE_WINDOW_SIZE_CONFIG = "dedupe.window.size";
+    static final String DEDUPE_WINDOW_MS_CONFIG = "dedupe.window.ms";
+
+    static final String STATEMENT_STYLE_VALUES = "values";
+    static final String STATEMENT_STYLE_IN_LIST = "in-list";
+
+    static final ConfigDef CONFIG_DEF = new ConfigDef()
+            .define(CONNECTION_URL_CONFIG, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, "JDBC URL of the database holding the outbox table")
+            .define(CONNECTION_USER_CONFIG, ConfigDef.Type.STRING, null, ConfigDef.Importance.HIGH, "Database user")
+            .define(CONNECTION_PASSWORD_CONFIG, ConfigDef.Type.PASSWORD, null, ConfigDef.Importance.HIGH, "Database password")
+            .define(TABLE_NAME_CONFIG, ConfigDef.Type.STRING, "Outbox", ConfigDef.Importance.HIGH, "Outbox table to update, e.g. 'dbo.Outbox'")
+            .define(ID_COLUMN_CONFIG, ConfigDef.Type.STRING, UpdateProcessedAt.ID_FIELD, ConfigDef.Importance.MEDIUM, "Key column matched against the record's Id")
+            .define(PROCESSED_AT_COLUMN_CONFIG, ConfigDef.Type.STRING, UpdateProcessedAt.PROCESSED_AT_FIELD, ConfigDef.Importance.MEDIUM, "Column set from the record's ProcessedAt")
+            .define(ID_COLUMN_TYPE_CONFIG, ConfigDef.Type.STRING, "NVARCHAR(64)", ConfigDef.Importance.LOW, "SQL type the Id values are cast to in the VALUES list")
+            .define(PROCESSED_AT_COLUMN_TYPE_CONFIG, ConfigDef.Type.STRING, "DATETIME2", ConfigDef.Importance.LOW, "SQL type the ProcessedAt values are cast to in the VALUES list")
+            .define(STATEMENT_STYLE_CONFIG, ConfigDef.Type.STRING, STATEMENT_STYLE_VALUES,
+                    ConfigDef.ValidString.in(STATEMENT_STYLE_VALUES, STATEMENT_STYLE_IN_LIST), ConfigDef.Importance.MEDIUM,
+                    "'values' merges a VALUES list so each row keeps its own ProcessedAt, 'in-list' sets the batch's latest ProcessedAt with WHERE Id IN (...)")
+            .define(BATCH_SIZE_CONFIG, ConfigDef.Type.INT, 500, ConfigDef.Range.between(1, 1000), ConfigDef.Importance.MEDIUM,
+                    "Maximum acknowledgements per statement (SQL Server allows at most 2100 parameters)")
+            .define(LINGER_MS_CONFIG, ConfigDef.Type.LONG, 0L, ConfigDef.Range.atLeast(0), ConfigDef.Importance.MEDIUM,
+                    "How long to hold a partial batch to let more acknowledgements join it; offsets are only committed once it is written. "
+                            + "Checked only when put() delivers records, so a partition that goes idle keeps its partial batch until the next offset commit (offset.flush.interval.ms) writes it")
+            .define(RETRY_BACKOFF_MS_CONFIG, ConfigDef.Type.LONG, 3_000L, ConfigDef.Range.atLeast(0), ConfigDef.Importance.LOW,
+                    "Backoff before redelivery after a failed write")
+            .define(DEDUPE_WINDOW_SIZE_CONFIG, ConfigDef.Type.INT, 0, ConfigDef.Range.atLeast(0), ConfigDef.Importance.MEDIUM,
+                    "Number of recently written ids to remember; redelivered acknowledgements for them are skipped (0 = off). Ids are only remembered after their update is committed")
+            .define(DEDUPE_WINDOW_MS_CONFIG, ConfigDef.Type.LONG, 600_000L, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW,
+                    "How long a written id suppresses redeliveries");
+
+    private Map<String, String> props;
+
+    @Override
+    public String version() {
+        return ProcessedAtSinkTask.VERSION;
+    }
+
+    @Override
+    public void start(Map<String, String> props) {
+        this.props = new HashMap<>(props);
+    }
+
+    @Override
+    public Class<? extends Task> taskClass() {
+        return ProcessedAtSinkTask.class;
+    }
+
+    @Override
+    public List<Map<String, String>> taskConfigs(int maxTasks) {
+        List<Map<String, String>> configs = new ArrayList<>(maxTasks);
+        for (int i = 0; i < maxTasks; i++) {
+            configs.add(props);
+        }
+        return configs;
+    }
+
+    @Override
+    public void stop() {
+        // No-op
+    }
+
+    @Override
+    public ConfigDef config() {
+        return CONFIG_DEF;
+    }
+}
@@ -0,0 +1,361 @@
+package com.twk.transforms;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.types.Password;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.errors.RetriableException;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTask;
+import org.apache.kafka.connect.transforms.util.SimpleConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.LongSupplier;
+
+/**
+ * Writes buffered ProcessedAt acknowledgements with one set-based statement per batch.
+ * <p>
+ * Acknowledgements are keyed by Id, so a redelivered event within a batch costs nothing. A batch
+ * is written once it reaches {@code batch.size} or has lingered for {@code linger.ms}, and always
+ * in {@link #flush(Map)}, so offsets are never committed ahead of the database. Linger is only
+ * checked when records arrive: a buffer that stops receiving them waits for the next offset
+ * commit. A failed write is rolled back and kept in the buffer for the redelivery that follows.
+ * <p>
+ * With {@code dedupe.window.size} set, ids are remembered once their update has been committed,
+ * and redeliveries of them within {@code dedupe.window.ms} (e.g. replays after a rebalance) are
+ * skipped. An id is never remembered before it is durably written, so skipping one can not lose
+ * an acknowledgement.
+ * <p>
+ * The JDBC driver is looked up on this plugin's classloader first, so it can ship in the plugin
+ * directory next to this jar rather than on the worker's classpath.
+ */
+public class ProcessedAtSinkTask extends SinkTask {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessedAtSinkTask.class);
+
+    static final String VERSION = Optional.ofNullable(ProcessedAtSinkTask.class.getPackage().getImplementationVersion())
+            .orElse("1.0-SNAPSHOT");
+
+    private final Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    private final Map<String, Instant> pending = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Long> written = new LinkedHashMap<>(); // Id -> committed at, oldest first
+    private final LongSupplier clock;
+    private long firstPendingAt;
+
+    private String url;
+    private String user;
+    private String password;
+    private String table;
+    private String idColumn;
+    private String processedAtColumn;
+    private String valuesRow;
+    private boolean valuesStatement;
+    private int batchSize;
+    private long lingerMs;
+    private long retryBackoffMs;
+    private int dedupeWindowSize;
+    private long dedupeWindowMs;
+
+    private Connection connection;
+    private PreparedStatement fullBatchStatement; // Reused for every full-size batch
+
+    public ProcessedAtSinkTask() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock wall-clock milliseconds, replaced in tests
+     */
+    ProcessedAtSinkTask(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public String version() {
+        return VERSION;
+    }
+
+    @Override
+    public void start(Map<String, String> props) {
+        SimpleConfig config = new SimpleConfig(ProcessedAtSinkConnector.CONFIG_DEF, props);
+        url = config.getString(ProcessedAtSinkConnector.CONNECTION_URL_CONFIG);
+        user = config.getString(ProcessedAtSinkConnector.CONNECTION_USER_CONFIG);
+        Password secret = config.getPassword(ProcessedAtSinkConnector.CONNECTION_PASSWORD_CONFIG);
+        password = secret != null ? secret.value() : null;
+        table = config.getString(ProcessedAtSinkConnector.TABLE_NAME_CONFIG);
+        idColumn = config.getString(ProcessedAtSinkConnector.ID_COLUMN_CONFIG);
+        processedAtColumn = config.getString(ProcessedAtSinkConnector.PROCESSED_AT_COLUMN_CONFIG);
+        valuesRow = "(CAST(? AS " + config.getString(ProcessedAtSinkConnector.ID_COLUMN_TYPE_CONFIG)
+                + "), CAST(? AS " + config.getString(ProcessedAtSinkConnector.PROCESSED_AT_COLUMN_TYPE_CONFIG) + "))";
+        valuesStatement = ProcessedAtSinkConnector.STATEMENT_STYLE_VALUES.equals(config.getString(ProcessedAtSinkConnector.STATEMENT_STYLE_CONFIG));
+        batchSize = config.getInt(ProcessedAtSinkConnector.BATCH_SIZE_CONFIG);
+        lingerMs = config.getLong(ProcessedAtSinkConnector.LINGER_MS_CONFIG);
+        retryBackoffMs = config.getLong(ProcessedAtSinkConnector.RETRY_BACKOFF_MS_CONFIG);
+        dedupeWindowSize = config.getInt(ProcessedAtSinkConnector.DEDUPE_WINDOW_SIZE_CONFIG);
+        dedupeWindowMs = config.getLong(ProcessedAtSinkConnector.DEDUPE_WINDOW_MS_CONFIG);
+        written.clear();
+    }
+
+    @Override
+    public void put(Collection<SinkRecord> records) {
+        for (SinkRecord record : records) {
+            if (record.value() != null) {
+                buffer(record);
+            }
+        }
+
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (pending.size() >= batchSize || clock.getAsLong() - firstPendingAt >= lingerMs) {
+            writePending();
+        }
+    }
+
+    @Override
+    public void flush(Map<TopicPartition, OffsetAndMetadata> currentOffsets) {
+        writePending();
+    }
+
+    @Override
+    public Map<TopicPartition, OffsetAndMetadata> preCommit(Map<TopicPartition, OffsetAndMetadata> currentOffsets) {
+        try {
+            flush(currentOffsets);
+            return currentOffsets;
+        } catch (ConnectException e) {
+            return Collections.emptyMap(); // Keep the last committed offsets until the write succeeds
+        }
+    }
+
+    @Override
+    public void stop() {
+        // Anything still buffered has uncommitted offsets and is redelivered
+        pending.clear();
+        written.clear();
+        closeConnection();
+    }
+
+    private void buffer(SinkRecord record) {
+        String id;
+        Object processedAt;
+        if (record.value() instanceof Struct) {
+            Struct value = (Struct) record.value();
+            id = value.getString(UpdateProcessedAt.ID_FIELD);
+            processedAt = value.get(UpdateProcessedAt.PROCESSED_AT_FIELD);
+        } else if (record.value() instanceof Map) {
+            Map<?, ?> value = (Map<?, ?>) record.value();
+            id = (String) value.get(UpdateProcessedAt.ID_FIELD);
+            processedAt = value.get(UpdateProcessedAt.PROCESSED_AT_FIELD);
+        } else {
+            throw new DataException("Expected an Id/ProcessedAt record but got " + record.value().getClass().getName());
+        }
+        if (id == null) {
+            log.debug("Skipping acknowledgement without Id at {}-{}@{}", record.topic(), record.kafkaPartition(), record.kafkaOffset());
+            return;
+        }
+
+        if (dedupeWindowSize > 0 && recentlyWritten(id, clock.getAsLong())) {
+            log.trace("Id {} already marked processed, skipping redelivery", id);
+            return;
+        }
+
+        if (pending.isEmpty()) {
+            firstPendingAt = clock.getAsLong();
+        }
+        pending.merge(id, toInstant(processedAt), (previous, next) -> next.isAfter(previous) ? next : previous);
+    }
+
+    private static Instant toInstant(Object processedAt) {
+        if (processedAt instanceof java.util.Date) {
+            return ((java.util.Date) processedAt).toInstant();
+        }
+        if (processedAt == null) {
+            return Instant.now();
+        }
+        try {
+            return Instant.parse(processedAt.toString());
+        } catch (DateTimeParseException e) {
+            throw new DataException("ProcessedAt is not an ISO-8601 instant: " + processedAt, e);
+        }
+    }
+
+    private void writePending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        try {
+            Connection connection = connection();
+            List<Map.Entry<String, Instant>> entries = new ArrayList<>(pending.entrySet());
+            for (int from = 0; from < entries.size(); from += batchSize) {
+                List<Map.Entry<String, Instant>> batch = entries.subList(from, Math.min(from + batchSize, entries.size()));
+                execute(connection, batch);
+            }
+            connection.commit();
+            log.debug("Marked {} outbox rows processed", entries.size());
+            if (dedupeWindowSize > 0) {
+                rememberWritten(pending.keySet(), clock.getAsLong());
+            }
+            pending.clear();
+
+        } catch (SQLException e) {
+            log.warn("Failed to mark {} outbox rows processed, retrying in {} ms", pending.size(), retryBackoffMs, e);
+            rollback();
+            closeConnection(); // The next attempt starts on a fresh connection
+            if (context != null) {
+                context.timeout(retryBackoffMs);
+            }
+            throw new RetriableException("Failed to mark outbox rows processed", e);
+        }
+    }
+
+    private boolean recentlyWritten(String id, long now) {
+        Long writtenAt = written.get(id);
+        return writtenAt != null && now - writtenAt < dedupeWindowMs;
+    }
+
+    /**
+     * Records committed ids at the tail of the window, then trims expired and excess ids from the head.
+     */
+    private void rememberWritten(Collection<String> ids, long now) {
+        for (String id : ids) {
+            written.remove(id); // Re-insert at the tail
+            written.put(id, now);
+        }
+
+        Iterator<Long> oldest = written.values().iterator();
+        while (oldest.hasNext()) {
+            long at = oldest.next();
+            if (written.size() <= dedupeWindowSize && now - at < dedupeWindowMs) {
+                break;
+            }
+            oldest.remove();
+        }
+    }
+
+    private void execute(Connection connection, List<Map.Entry<String, Instant>> batch) throws SQLException {
+        PreparedStatement statement;
+        boolean reused = batch.size() == batchSize;
+        if (reused) {
+            if (fullBatchStatement == null) {
+                fullBatchStatement = connection.prepareStatement(sql(batchSize));
+            }
+            statement = fullBatchStatement;
+        } else {
+            statement = connection.prepareStatement(sql(batch.size()));
+        }
+
+        try {
+            int index = 1;
+            if (valuesStatement) {
+                for (Map.Entry<String, Instant> ack : batch) {
+                    statement.setString(index++, ack.getKey());
+                    statement.setTimestamp(index++, Timestamp.from(ack.getValue()), utc);
+                }
+            } else {
+                Instant latest = Instant.EPOCH;
+                for (Map.Entry<String, Instant> ack : batch) {
+                    latest = ack.getValue().isAfter(latest) ? ack.getValue() : latest;
+                }
+                statement.setTimestamp(index++, Timestamp.from(latest), utc);
+                for (Map.Entry<String, Instant> ack : batch) {
+                    statement.setString(index++, ack.getKey());
+                }
+            }
+            statement.executeUpdate();
+        } finally {
+            if (!reused) {
+                statement.close();
+            }
+        }
+    }
+
+    /**
+     * Builds the statement for {@code rows} acknowledgements.
+     */
+    String sql(int rows) {
+        StringBuilder sql = new StringBuilder(128 + rows * (valuesStatement ? valuesRow.length() + 2 : 3));
+        if (valuesStatement) {
+            sql.append("MERGE INTO ").append(table).append(" AS t USING (VALUES ");
+            for (int i = 0; i < rows; i++) {
+                sql.append(i == 0 ? "" : ", ").append(valuesRow); // Typed, so the derived table's columns are too
+            }
+            sql.append(") AS v (").append(idColumn).append(", ").append(processedAtColumn).append(")")
+                    .append(" ON t.").append(idColumn).append(" = v.").append(idColumn)
+                    .append(" WHEN MATCHED THEN UPDATE SET ").append(processedAtColumn).append(" = v.").append(processedAtColumn)
+                    .append(';'); // SQL Server requires MERGE to be terminated
+        } else {
+            sql.append("UPDATE ").append(table).append(" SET ").append(processedAtColumn).append(" = ?")
+                    .append(" WHERE ").append(idColumn).append(" IN (");
+            for (int i = 0; i < rows; i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(')');
+        }
+        return sql.toString();
+    }
+
+    private Connection connection() throws SQLException {
+        if (connection == null) {
+            Properties credentials = new Properties();
+            if (user != null) {
+                credentials.setProperty("user", user);
+            }
+            if (password != null) {
+                credentials.setProperty("password", password);
+            }
+            connection = driver().connect(url, credentials);
+            connection.setAutoCommit(false);
+        }
+        return connection;
+    }
+
+    /**
+     * DriverManager only sees drivers visible to the worker's classloader, not ones bundled in
+     * this plugin's directory, so the plugin's own drivers are asked first.
+     */
+    private Driver driver() throws SQLException {
+        for (Driver driver : ServiceLoader.load(Driver.class, ProcessedAtSinkTask.class.getClassLoader())) {
+            if (driver.acceptsURL(url)) {
+                return driver;
+            }
+        }
+        return DriverManager.getDriver(url);
+    }
+
+    private void rollback() {
+        try {
+            if (connection != null) {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            log.debug("Failed to roll back", e);
+        }
+    }
+
+    private void closeConnection() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Failed to close connection", e);
+        } finally {
+            connection = null;
+            fullBatchStatement = null;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.twk.transforms;
+
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.connector.ConnectRecord;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.header.Header;
+import org.apache.kafka.connect.transforms.predicates.Predicate;
+import org.apache.kafka.connect.transforms.util.SimpleConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Predicate matching records by topic, by a header and by a top-level value field, so the outbox
+ * transforms can be skipped for tombstones, heartbeats and payload types that are never routed.
+ * Every configured condition must hold.
+ * <p>
+ * Each condition takes a list of exact values ({@code OrderCreated}) and prefixes ({@code Order*}),
+ * plus an optional regular expression in its {@code .regex} setting ({@code Order(Created|Paid)}).
+ * The regex is a single string rather than a list entry so commas in quantifiers such as
+ * {@code .{1,3}} survive; use alternation for several. A value matches if any of them does. They
+ * are compiled once in configure() into a hash set, a prefix trie and a regex, checked in that
+ * order.
+ * <pre>
+ * predicates=routable
+ * predicates.routable.type=com.twk.transforms.RecordMatches
+ * predicates.routable.field.name=PayloadType
+ * predicates.routable.field.values=Order*,Payment*
+ * transforms.outbox.predicate=routable
+ * </pre>
+ */
+public class RecordMatches<R extends ConnectRecord<R>> implements Predicate<R> {
+
+    private static final Logger log = LoggerFactory.getLogger(RecordMatches.class);
+
+    private static final String TOPICS_CONFIG = "topics";
+    private static final String HEADER_NAME_CONFIG = "header.name";
+    private static final String HEADER_VALUES_CONFIG = "header.values";
+    private static final String FIELD_NAME_CONFIG = "field.name";
+    private static final String FIELD_VALUES_CONFIG = "field.values";
+    private static final String REGEX_SUFFIX = ".regex";
+    private static final String TOPICS_REGEX_CONFIG = TOPICS_CONFIG + REGEX_SUFFIX;
+    private static final String HEADER_VALUES_REGEX_CONFIG = HEADER_VALUES_CONFIG + REGEX_SUFFIX;
+    private static final String FIELD_VALUES_REGEX_CONFIG = FIELD_VALUES_CONFIG + REGEX_SUFFIX;
+
+    private static final String PATTERN_SYNTAX = "Exact values or prefixes ending in '*'";
+    private static final String REGEX_SYNTAX = "Regular expression the whole value may match instead, in addition to ";
+
+    public static final ConfigDef CONFIG_DEF = new ConfigDef()
+            .define(TOPICS_CONFIG, ConfigDef.Type.LIST, "", ConfigDef.Importance.MEDIUM,
+                    "Topics the record must have, empty for any. " + PATTERN_SYNTAX)
+            .define(TOPICS_REGEX_CONFIG, ConfigDef.Type.STRING, null, ConfigDef.Importance.MEDIUM,
+                    REGEX_SYNTAX + TOPICS_CONFIG)
+            .define(HEADER_NAME_CONFIG, ConfigDef.Type.STRING, null, ConfigDef.Importance.MEDIUM,
+                    "Header the record must carry (last value wins)")
+            .define(HEADER_VALUES_CONFIG, ConfigDef.Type.LIST, "", ConfigDef.Importance.MEDIUM,
+                    "Values the header must have, empty for any. " + PATTERN_SYNTAX)
+            .define(HEADER_VALUES_REGEX_CONFIG, ConfigDef.Type.STRING, null, ConfigDef.Importance.MEDIUM,
+                    REGEX_SYNTAX + HEADER_VALUES_CONFIG)
+            .define(FIELD_NAME_CONFIG, ConfigDef.Type.STRING, null, ConfigDef.Importance.MEDIUM,
+                    "Top-level value field that must be present and non-null (struct or map values)")
+            .define(FIELD_VALUES_CONFIG, ConfigDef.Type.LIST, "", ConfigDef.Importance.MEDIUM,
+                    "Values the field must have, empty for any. " + PATTERN_SYNTAX)
+            .define(FIELD_VALUES_REGEX_CONFIG, ConfigDef.Type.STRING, null, ConfigDef.Importance.MEDIUM,
+                    REGEX_SYNTAX + FIELD_VALUES_CONFIG);
+
+    private ValueMatcher topics; // Null when not matched on
+    private String headerName;
+    private ValueMatcher headerValues;
+    private String fieldName;
+    private ValueMatcher fieldValues;
+    private final HeaderValues headerDecoder = new HeaderValues(HeaderValues.DEFAULT_INTERN_CACHE_SIZE);
+
+    @Override
+    public void configure(Map<String, ?> props) {
+        SimpleConfig config = new SimpleConfig(CONFIG_DEF, props);
+        topics = ValueMatcher.compile(config, TOPICS_CONFIG);
+        headerName = config.getString(HEADER_NAME_CONFIG);
+        headerValues = ValueMatcher.compile(config, HEADER_VALUES_CONFIG);
+        fieldName = config.getString(FIELD_NAME_CONFIG);
+        fieldValues = ValueMatcher.compile(config, FIELD_VALUES_CONFIG);
+
+        if (headerName == null && headerValues != null) {
+            throw new ConfigException(HEADER_VALUES_CONFIG, config.getList(HEADER_VALUES_CONFIG), "Requires " + HEADER_NAME_CONFIG);
+        }
+        if (fieldName == null && fieldValues != null) {
+            throw new ConfigException(FIELD_VALUES_CONFIG, config.getList(FIELD_VALUES_CONFIG), "Requires " + FIELD_NAME_CONFIG);
+        }
+
+        log.info("RecordMatches configured (topics={}, header={}, field={})", topics != null, headerName, fieldName);
+    }
+
+    @Override
+    public boolean test(R record) {
+        if (topics != null && !topics.matches(record.topic())) {
+            return false;
+        }
+
+        if (headerName != null) {
+            Header header = record.headers().lastWithName(headerName);
+            if (header == null || header.value() == null) {
+                return false;
+            }
+            if (headerValues != null && !headerValues.matches(headerDecoder.asString(header))) {
+                return false;
+            }
+        }
+
+        if (fieldName != null) {
+            Object value = fieldValue(record.value());
+            if (value == null) {
+                return false;
+            }
+            return fieldValues == null || fieldValues.matches(value.toString());
+        }
+        return true;
+    }
+
+    private Object fieldValue(Object value) {
+        if (value instanceof Struct) {
+            Struct struct = (Struct) value;
+            Field field = struct.schema().field(fieldName);
+            return field != null ? struct.get(field) : null;
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).get(fieldName);
+        }
+        return null; // Tombstones and primitive values have no fields
+    }
+
+    @Override
+    public ConfigDef config() {
+        return CONFIG_DEF;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * One compiled condition: exact values in a hash set, prefixes in a trie and the optional
+     * regular expression.
+     */
+    static final class ValueMatcher {
+        private static final String PREFIX_WILDCARD = "*";
+
+        private final Set<String> exact;
+        private final PrefixTrie prefixes; // Null without prefixes
+        private final Pattern regex; // Null without regular expressions
+
+        private ValueMatcher(Set<String> exact, PrefixTrie prefixes, Pattern regex) {
+            this.exact = exact;
+            this.prefixes = prefixes;
+            this.regex = regex;
+        }
+
+        /**
+         * Compiles the list setting {@code name} and its {@code name.regex} companion. Returns null
+         * when both are empty, which matches anything.
+         */
+        static ValueMatcher compile(SimpleConfig config, String name) {
+            List<String> patterns = config.getList(name);
+            String regexName = name + REGEX_SUFFIX;
+            String expression = config.getString(regexName);
+            boolean hasRegex = expression != null && !expression.isEmpty();
+            if (patterns.isEmpty() && !hasRegex) {
+                return null;
+            }
+
+            Pattern regex = null;
+            if (hasRegex) {
+                try {
+                    regex = Pattern.compile(expression);
+                } catch (PatternSyntaxException e) {
+                    throw new ConfigException(regexName, expression, "Invalid regular expression: " + e.getDescription());
+                }
+            }
+
+            Set<String> exact = new HashSet<>();
+            PrefixTrie prefixes = null;
+            for (String pattern : patterns) {
+                if (pattern.endsWith(PREFIX_WILDCARD)) {
+                    if (prefixes == null) {
+                        prefixes = new PrefixTrie();
+                    }
+                    prefixes.add(pattern.substring(0, pattern.length() - PREFIX_WILDCARD.length()));
+                } else {
+                    exact.add(pattern);
+                }
+            }
+            return new ValueMatcher(exact, prefixes, regex);
+        }
+
+        boolean matches(String value) {
+            if (value == null) {
+                return false;
+            }
+            return exact.contains(value)
+                    || (prefixes != null && prefixes.matchesPrefixOf(value))
+                    || (regex != null && regex.matcher(value).matches());
+        }
+    }
+
+    /**
+     * Character trie answering whether any stored prefix starts a value, in one walk over the value.
+     */
+    static final class PrefixTrie {
+        private final Node root = new Node();
+
+        void add(String prefix) {
+            Node node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.childOrCreate(prefix.charAt(i));
+            }
+            node.terminal = true;
+        }
+
+        boolean matchesPrefixOf(String value) {
+            Node node = root;
+            for (int i = 0; !node.terminal; i++) {
+                if (i == value.length() || (node = node.child(value.charAt(i))) == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static final class Node {
+            private char[] keys = new char[0]; // Sorted, searched with binarySearch
+            private Node[] children = new Node[0];
+            private boolean terminal;
+
+            Node child(char key) {
+                int index = Arrays.binarySearch(keys, key);
+                return index >= 0 ? children[index] : null;
+            }
+
+            Node childOrCreate(char key) {
+                int index = Arrays.binarySearch(keys, key);
+                if (index >= 0) {
+                    return children[index];
+                }
+                int insertAt = -index - 1;
+                char[] newKeys = new char[keys.length + 1];
+                Node[] newChildren = new Node[children.length + 1];
+                System.arraycopy(keys, 0, newKeys, 0, insertAt);
+                System.arraycopy(children, 0, newChildren, 0, insertAt);
+                newKeys[insertAt] = key;
+                newChildren[insertAt] = new Node();
+                System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+                System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+                keys = newKeys;
+                children = newChildren;
+                return newChildren[insertAt];
+            }
+        }
+    }
+}
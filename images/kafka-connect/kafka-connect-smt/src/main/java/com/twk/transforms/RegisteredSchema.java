@@ -0,0 +1,76 @@
+package com.twk.transforms;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+
+/**
+ * Everything OutboxEventRouter needs per subject, resolved once when the schema is loaded:
+ * the registry coordinates, the Avro schema and the matching Connect schema.
+ * <p>
+ * The readers are built on first use, since a schema only ever serves one path: the compiled
+ * JSON reader that fills Structs by field slot for JSON payloads, and the Avro datum reader for
+ * wire-format payloads. Two threads racing on first use both build an equivalent reader, which
+ * is harmless.
+ */
+final class RegisteredSchema {
+
+    private final String subject;
+    private final int id;
+    private final int version;
+    private final Schema avroSchema;
+    private final org.apache.kafka.connect.data.Schema connectSchema;
+    private volatile JsonStructReader jsonReader;
+    private volatile GenericDatumReader<Object> datumReader;
+
+    RegisteredSchema(String subject, int id, int version, Schema avroSchema, org.apache.kafka.connect.data.Schema connectSchema) {
+        this.subject = subject;
+        this.id = id;
+        this.version = version;
+        this.avroSchema = avroSchema;
+        this.connectSchema = connectSchema;
+    }
+
+    String subject() {
+        return subject;
+    }
+
+    int id() {
+        return id;
+    }
+
+    int version() {
+        return version;
+    }
+
+    Schema avroSchema() {
+        return avroSchema;
+    }
+
+    org.apache.kafka.connect.data.Schema connectSchema() {
+        return connectSchema;
+    }
+
+    /**
+     * Returns the JSON reader, compiling it on first use.
+     */
+    JsonStructReader reader() {
+        JsonStructReader reader = jsonReader;
+        if (reader == null) {
+            reader = JsonStructReader.compile(avroSchema, connectSchema);
+            jsonReader = reader;
+        }
+        return reader;
+    }
+
+    /**
+     * Returns the reader for Avro binary bodies written with this schema, created on first use.
+     */
+    GenericDatumReader<Object> datumReader() {
+        GenericDatumReader<Object> reader = datumReader;
+        if (reader == null) {
+            reader = new GenericDatumReader<>(avroSchema);
+            datumReader = reader;
+        }
+        return reader;
+    }
+}
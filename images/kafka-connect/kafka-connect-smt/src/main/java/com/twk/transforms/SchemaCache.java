@@ -0,0 +1,395 @@
+package com.twk.transforms;
+
+import org.apache.kafka.connect.errors.ConnectException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Subject-keyed cache of resolved schemas for OutboxEventRouter.
+ * <ul>
+ *   <li>Entries expire after a TTL and are then served stale while a single background thread
+ *       reloads them, so registry latency never reaches the task thread once a subject is known.</li>
+ *   <li>Failed loads are cached with exponential backoff; until the backoff passes, lookups fail
+ *       fast (unknown subject) or keep serving the last good schema (known subject).</li>
+ *   <li>Loads are single-flight per subject: concurrent misses wait on the same registry call.</li>
+ *   <li>The cache is bounded; the least recently used subject is evicted first.</li>
+ * </ul>
+ */
+final class SchemaCache implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaCache.class);
+
+    /**
+     * Loads the current schema for a subject. {@code previous} is the cached entry on refresh,
+     * so unchanged schemas can be kept instead of being recompiled.
+     */
+    @FunctionalInterface
+    interface Loader {
+        RegisteredSchema load(String subject, RegisteredSchema previous) throws Exception;
+    }
+
+    private static final class Entry {
+        final RegisteredSchema schema;
+        final Throwable failure;
+        final int failures;
+        final long expiresAt;
+        final boolean seeded; // Schema came from seed() and the registry has not confirmed it yet
+        volatile long lastAccess;
+
+        Entry(RegisteredSchema schema, Throwable failure, int failures, long expiresAt, long now, boolean seeded) {
+            this.schema = schema;
+            this.failure = failure;
+            this.failures = failures;
+            this.expiresAt = expiresAt;
+            this.seeded = seeded;
+            this.lastAccess = now;
+        }
+    }
+
+    private final Loader loader;
+    private final Consumer<RegisteredSchema> onChange;
+    private final LongSupplier clock;
+    private final long ttlMs;
+    private final long retryBackoffMs;
+    private final long retryBackoffMaxMs;
+    private final int maxSize;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<RegisteredSchema>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(daemonThreads("outbox-schema-refresh"));
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LatencyHistogram loadTimes = new LatencyHistogram();
+
+    SchemaCache(Loader loader, long ttlMs, long retryBackoffMs, long retryBackoffMaxMs, int maxSize) {
+        this(loader, ttlMs, retryBackoffMs, retryBackoffMaxMs, maxSize, schema -> { });
+    }
+
+    /**
+     * @param onChange called after a load produced a new or different schema for a subject, or
+     *                 confirmed a seeded one
+     */
+    SchemaCache(Loader loader, long ttlMs, long retryBackoffMs, long retryBackoffMaxMs, int maxSize,
+                Consumer<RegisteredSchema> onChange) {
+        this(loader, ttlMs, retryBackoffMs, retryBackoffMaxMs, maxSize, onChange,
+                () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    /**
+     * @param clock monotonic milliseconds, replaced in tests
+     */
+    SchemaCache(Loader loader, long ttlMs, long retryBackoffMs, long retryBackoffMaxMs, int maxSize,
+                Consumer<RegisteredSchema> onChange, LongSupplier clock) {
+        this.loader = loader;
+        this.onChange = onChange;
+        this.clock = clock;
+        this.ttlMs = ttlMs;
+        this.retryBackoffMs = retryBackoffMs;
+        this.retryBackoffMaxMs = Math.max(retryBackoffMs, retryBackoffMaxMs);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the schema for a subject, loading it on the calling thread only if it has never
+     * been loaded (or was evicted).
+     */
+    RegisteredSchema get(String subject) {
+        long now = now();
+        Entry entry = entries.get(subject);
+
+        if (entry != null) {
+            entry.lastAccess = now;
+            if (entry.schema != null) {
+                hits.increment();
+                if (now >= entry.expiresAt) {
+                    refreshAsync(subject);
+                }
+                return entry.schema;
+            }
+            misses.increment();
+            if (now < entry.expiresAt) {
+                throw new ConnectException("Failed to fetch Avro schema for subject: " + subject
+                        + " (retrying in " + (entry.expiresAt - now) + " ms)", entry.failure);
+            }
+        } else {
+            misses.increment();
+        }
+
+        return load(subject);
+    }
+
+    /**
+     * Loads the given subjects in parallel on a bounded pool and waits up to {@code timeoutMs}
+     * for them. Loads still running at the deadline carry on in the background; a record that
+     * needs one of those subjects joins the in-flight load, anything that failed is retried
+     * lazily.
+     *
+     * @return the number of subjects that were ready by the deadline
+     */
+    int warmUp(Collection<String> subjects, int parallelism, long timeoutMs) {
+        if (subjects.isEmpty()) {
+            return 0;
+        }
+
+        long start = now();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, subjects.size()), daemonThreads("outbox-schema-warmup"));
+        for (String subject : subjects) {
+            pool.execute(() -> {
+                try {
+                    get(subject);
+                } catch (ConnectException e) {
+                    log.warn("Schema warm-up failed for subject {}, it will be loaded lazily", subject, e);
+                }
+            });
+        }
+        pool.shutdown();
+
+        try {
+            if (!pool.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Schema warm-up did not finish within {} ms, remaining subjects load lazily", timeoutMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        int ready = 0;
+        for (String subject : subjects) {
+            if (getIfPresent(subject) != null) {
+                ready++;
+            }
+        }
+        log.info("Warmed up {}/{} schemas in {} ms", ready, subjects.size(), now() - start);
+        return ready;
+    }
+
+    /**
+     * Seeds a schema obtained elsewhere (e.g. a local snapshot). It is served immediately and
+     * revalidated against the registry in the background.
+     */
+    void seed(RegisteredSchema schema) {
+        long now = now();
+        if (entries.putIfAbsent(schema.subject(), new Entry(schema, null, 0, now, now, true)) == null) {
+            refreshAsync(schema.subject());
+        }
+    }
+
+    /**
+     * Runs a task on the cache's background thread, or drops it if the cache is closed.
+     */
+    void runInBackground(Runnable task) {
+        try {
+            refresher.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.debug("Schema cache closed, dropping background task");
+        }
+    }
+
+    /**
+     * Returns every schema currently held by the cache that the registry has confirmed; seeds are
+     * left out until their revalidation succeeds.
+     */
+    List<RegisteredSchema> schemas() {
+        List<RegisteredSchema> schemas = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            if (entry.schema != null && !entry.seeded) {
+                schemas.add(entry.schema);
+            }
+        }
+        return schemas;
+    }
+
+    /**
+     * Returns the cached schema without loading or refreshing it.
+     */
+    RegisteredSchema getIfPresent(String subject) {
+        Entry entry = entries.get(subject);
+        return entry != null ? entry.schema : null;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Lookups served from the cache, including stale entries being refreshed.
+     */
+    long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Lookups that had to load (or wait for) the schema, or hit a cached failure.
+     */
+    long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Duration of every registry load, foreground and background.
+     */
+    LatencyHistogram loadTimes() {
+        return loadTimes;
+    }
+
+    private RegisteredSchema load(String subject) {
+        CompletableFuture<RegisteredSchema> future = new CompletableFuture<>();
+        CompletableFuture<RegisteredSchema> existing = inFlight.putIfAbsent(subject, future);
+        if (existing != null) {
+            return await(subject, existing);
+        }
+
+        try {
+            RegisteredSchema schema = runLoad(subject);
+            future.complete(schema);
+            return schema;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(subject, future);
+        }
+    }
+
+    private void refreshAsync(String subject) {
+        if (inFlight.containsKey(subject)) {
+            return; // Cheap check first, stale reads keep hitting this until the refresh lands
+        }
+        CompletableFuture<RegisteredSchema> future = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(subject, future) != null) {
+            return; // Already being loaded
+        }
+
+        try {
+            refresher.execute(() -> {
+                try {
+                    future.complete(runLoad(subject));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(subject, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(subject, future); // Closed
+        }
+    }
+
+    /**
+     * Calls the loader and records the outcome. Must only run while holding the subject's
+     * in-flight slot, which makes it the single writer for that subject's entry.
+     */
+    private RegisteredSchema runLoad(String subject) {
+        Entry previous = entries.get(subject);
+        RegisteredSchema previousSchema = previous != null ? previous.schema : null;
+
+        long start = now();
+        long startNanos = System.nanoTime();
+        try {
+            RegisteredSchema schema = loader.load(subject, previousSchema);
+            loadTimes.record(System.nanoTime() - startNanos);
+            long now = now();
+            entries.put(subject, new Entry(schema, null, 0, expiry(now), now, false));
+
+            if (previousSchema != null && previousSchema.id() != schema.id()) {
+                log.info("Schema for subject {} changed from id {} to {}", subject, previousSchema.id(), schema.id());
+            }
+            log.debug("Loaded schema for subject {} (id {}) in {} ms", subject, schema.id(), now - start);
+
+            evictIfNeeded();
+            if (schema != previousSchema || previous.seeded) {
+                onChange.accept(schema);
+            }
+            return schema;
+
+        } catch (Exception e) {
+            loadTimes.record(System.nanoTime() - startNanos);
+            long now = now();
+            int failures = previous != null ? previous.failures + 1 : 1;
+            entries.put(subject, new Entry(previousSchema, e, failures, now + backoff(failures), now,
+                    previous != null && previous.seeded));
+            evictIfNeeded(); // Failed subjects count against the bound too
+
+            if (previousSchema != null) {
+                log.warn("Failed to refresh schema for subject {}, keeping id {} (attempt {})", subject, previousSchema.id(), failures, e);
+                return previousSchema;
+            }
+            if (e instanceof ConnectException) {
+                throw (ConnectException) e;
+            }
+            throw new ConnectException("Failed to fetch Avro schema for subject: " + subject, e);
+        }
+    }
+
+    private RegisteredSchema await(String subject, CompletableFuture<RegisteredSchema> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ConnectException) {
+                throw (ConnectException) e.getCause();
+            }
+            throw new ConnectException("Failed to fetch Avro schema for subject: " + subject, e.getCause());
+        }
+    }
+
+    private long expiry(long now) {
+        return ttlMs > 0 ? now + ttlMs : Long.MAX_VALUE;
+    }
+
+    private long backoff(int failures) {
+        long backoff = retryBackoffMs << Math.min(failures - 1, 20);
+        return Math.min(backoff, retryBackoffMaxMs);
+    }
+
+    private void evictIfNeeded() {
+        while (entries.size() > maxSize) {
+            String eldest = null;
+            long eldestAccess = Long.MAX_VALUE;
+            for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+                if (candidate.getValue().lastAccess < eldestAccess) {
+                    eldest = candidate.getKey();
+                    eldestAccess = candidate.getValue().lastAccess;
+                }
+            }
+            if (eldest == null || entries.remove(eldest) == null) {
+                return;
+            }
+            log.debug("Evicted schema for subject {}", eldest);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private long now() {
+        return clock.getAsLong();
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+        entries.clear();
+        inFlight.clear();
+    }
+}
@@ -0,0 +1,93 @@
+package com.twk.transforms;
+
+import org.apache.kafka.connect.data.Schema;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Small LRU cache of values derived from an input schema, keyed on schema identity.
+ * <p>
+ * Converters hand out the same Schema instance for every record of a given shape, so an identity
+ * lookup avoids the deep equals/hashCode of Connect schemas. The most recent hit is checked first,
+ * which makes the common single-schema connector a plain reference comparison. A null schema
+ * (schemaless records) is a valid key.
+ */
+final class SchemaIdentityCache<V> {
+
+    private static final Object NULL_SCHEMA = new Object();
+
+    private final Map<IdentityKey, V> entries;
+    private volatile LastHit<V> last;
+
+    SchemaIdentityCache(int maxSize) {
+        this.entries = new LinkedHashMap<IdentityKey, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<IdentityKey, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    V computeIfAbsent(Schema schema, Function<Schema, V> factory) {
+        Object ref = schema != null ? schema : NULL_SCHEMA;
+        LastHit<V> hit = last;
+        if (hit != null && hit.ref == ref) {
+            return hit.value;
+        }
+
+        IdentityKey key = new IdentityKey(ref);
+        V value;
+        synchronized (entries) {
+            value = entries.get(key);
+            if (value == null) {
+                value = factory.apply(schema);
+                entries.put(key, value);
+            }
+        }
+        last = new LastHit<>(ref, value);
+        return value;
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    void clear() {
+        synchronized (entries) {
+            last = null;
+            entries.clear();
+        }
+    }
+
+    private static final class LastHit<V> {
+        private final Object ref;
+        private final V value;
+
+        LastHit(Object ref, V value) {
+            this.ref = ref;
+            this.value = value;
+        }
+    }
+
+    private static final class IdentityKey {
+        private final Object ref;
+
+        IdentityKey(Object ref) {
+            this.ref = ref;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof IdentityKey && ((IdentityKey) other).ref == ref;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(ref);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.twk.transforms;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+
+/**
+ * Local snapshot of resolved registry schemas, so OutboxEventRouter can cold-start without
+ * waiting on Schema Registry.
+ * <p>
+ * Layout: magic, format version, entry count, then per entry the subject, schema id, version,
+ * write time (epoch millis) and schema text (length-prefixed UTF-8), followed by a CRC32 of
+ * everything before it. The file is memory-mapped on read and replaced atomically on write.
+ * Entries written by other tasks that share the file are kept until they are older than the
+ * maximum age, so one path can serve a whole worker: writers serialize their read-merge-replace
+ * on a sibling {@code .lock} file, which also covers other processes. A writer drops the subjects
+ * it wrote before and no longer holds, so evicted or deleted subjects are not restored again.
+ */
+final class SchemaSnapshot {
+
+    private static final int MAGIC = 0x4F425853; // "OBXS"
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * File locks are held per JVM, so tasks of the same worker also serialize on a monitor.
+     */
+    private static final Map<Path, Object> WRITERS = new ConcurrentHashMap<>();
+
+    static final class Entry {
+        final String subject;
+        final int id;
+        final int version;
+        final long writtenAt;
+        final String schema;
+
+        Entry(String subject, int id, int version, long writtenAt, String schema) {
+            this.subject = subject;
+            this.id = id;
+            this.version = version;
+            this.writtenAt = writtenAt;
+            this.schema = schema;
+        }
+    }
+
+    static final long DEFAULT_MAX_AGE_MS = TimeUnit.DAYS.toMillis(7);
+
+    private final Path path;
+    private final long maxAgeMs;
+    private final LongSupplier clock;
+    private Set<String> written = Collections.emptySet(); // Subjects of this writer's last write
+
+    SchemaSnapshot(Path path) {
+        this(path, DEFAULT_MAX_AGE_MS);
+    }
+
+    SchemaSnapshot(Path path, long maxAgeMs) {
+        this(path, maxAgeMs, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock wall-clock milliseconds, replaced in tests
+     */
+    SchemaSnapshot(Path path, long maxAgeMs, LongSupplier clock) {
+        this.path = path;
+        this.maxAgeMs = maxAgeMs;
+        this.clock = clock;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    /**
+     * Reads the snapshot, or returns an empty list if there is none yet.
+     *
+     * @throws IOException if the file exists but is unreadable or corrupt
+     */
+    List<Entry> read() throws IOException {
+        if (!Files.exists(path)) {
+            return Collections.emptyList();
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 16 || size > Integer.MAX_VALUE) {
+                throw new IOException("Schema snapshot " + path + " has invalid size " + size);
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int bodyLength = (int) size - Integer.BYTES;
+
+            CRC32 crc = new CRC32();
+            ByteBuffer body = buffer.duplicate();
+            body.limit(bodyLength);
+            crc.update(body);
+            if ((int) crc.getValue() != buffer.getInt(bodyLength)) {
+                throw new IOException("Schema snapshot " + path + " failed its checksum");
+            }
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Schema snapshot " + path + " has an unknown format");
+            }
+
+            int count = buffer.getInt();
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String subject = readString(buffer);
+                int id = buffer.getInt();
+                int version = buffer.getInt();
+                long writtenAt = buffer.getLong();
+                entries.add(new Entry(subject, id, version, writtenAt, readString(buffer)));
+            }
+            return entries;
+
+        } catch (RuntimeException e) {
+            throw new IOException("Schema snapshot " + path + " is corrupt", e);
+        }
+    }
+
+    /**
+     * Writes the given schemas, merged over whatever the current snapshot holds for other subjects
+     * that are still within the maximum age.
+     */
+    synchronized void write(Collection<RegisteredSchema> schemas) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path lockPath = directory.resolve(path.getFileName() + ".lock");
+
+        synchronized (WRITERS.computeIfAbsent(lockPath.normalize(), key -> new Object())) {
+            try (FileChannel lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = lockChannel.lock()) {
+                merge(schemas, directory);
+            }
+        }
+    }
+
+    private void merge(Collection<RegisteredSchema> schemas, Path directory) throws IOException {
+        long now = clock.getAsLong();
+        Map<String, Entry> merged = new LinkedHashMap<>();
+        try {
+            for (Entry entry : read()) {
+                if (!written.contains(entry.subject) && now - entry.writtenAt < maxAgeMs) {
+                    merged.put(entry.subject, entry);
+                }
+            }
+        } catch (IOException e) {
+            // Unreadable snapshot, overwrite it
+        }
+        Set<String> subjects = new HashSet<>();
+        for (RegisteredSchema schema : schemas) {
+            merged.put(schema.subject(),
+                    new Entry(schema.subject(), schema.id(), schema.version(), now, schema.avroSchema().toString()));
+            subjects.add(schema.subject());
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(merged.size());
+        for (Entry entry : merged.values()) {
+            writeString(out, entry.subject);
+            out.writeInt(entry.id);
+            out.writeInt(entry.version);
+            out.writeLong(entry.writtenAt);
+            writeString(out, entry.schema);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+        out.flush();
+
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        written = subjects;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] utf8 = new byte[buffer.getInt()];
+        buffer.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,278 @@
+package com.twk.transforms;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.kafka.connect.data.Date;
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.data.Time;
+import org.apache.kafka.connect.data.Timestamp;
+import org.apache.kafka.connect.errors.DataException;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes Connect data as JSON by streaming it straight into a Jackson JsonGenerator, guided by the
+ * Connect schema. Nested structs, arrays and maps keep their shape, bytes are base64 and Decimal is
+ * a JSON number. Date/Time/Timestamp are epoch milliseconds (milliseconds of the day for Time),
+ * as Jackson writes java.util.Date, or optionally ISO-8601 strings. Output is assembled in a
+ * per-thread buffer that is reused across records.
+ */
+final class StructJsonWriter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int MAX_RETAINED_BUFFER = 1 << 20;
+
+    private static final ThreadLocal<StringBuilderWriter> BUFFERS = ThreadLocal.withInitial(StringBuilderWriter::new);
+
+    private StructJsonWriter() {
+    }
+
+    /**
+     * Serialises a value with its schema; a null schema falls back to the value's Java type.
+     *
+     * @param isoTemporals write Date/Time/Timestamp as ISO-8601 strings instead of epoch millis
+     */
+    static String toJson(Schema schema, Object value, boolean isoTemporals) {
+        StringBuilderWriter buffer = BUFFERS.get();
+        buffer.reset();
+
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(buffer)) {
+            writeValue(generator, schema, value, isoTemporals);
+        } catch (IOException e) {
+            throw new DataException("Failed to convert value to JSON", e);
+        }
+
+        String json = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+            BUFFERS.remove(); // Do not pin one oversized payload's buffer to the thread
+        }
+        return json;
+    }
+
+    static void writeValue(JsonGenerator generator, Schema schema, Object value, boolean isoTemporals) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+            return;
+        }
+        if (schema == null) {
+            writeSchemaless(generator, value, isoTemporals);
+            return;
+        }
+
+        String logicalName = schema.name();
+        if (logicalName != null) {
+            switch (logicalName) {
+                case Decimal.LOGICAL_NAME:
+                    generator.writeNumber((BigDecimal) value);
+                    return;
+                case Date.LOGICAL_NAME:
+                case Time.LOGICAL_NAME:
+                case Timestamp.LOGICAL_NAME:
+                    writeTemporal(generator, logicalName, (java.util.Date) value, isoTemporals);
+                    return;
+                default:
+                    break;
+            }
+        }
+
+        switch (schema.type()) {
+            case INT8:
+            case INT16:
+            case INT32:
+                generator.writeNumber(((Number) value).intValue());
+                break;
+            case INT64:
+                generator.writeNumber((Long) value);
+                break;
+            case FLOAT32:
+                generator.writeNumber((Float) value);
+                break;
+            case FLOAT64:
+                generator.writeNumber((Double) value);
+                break;
+            case BOOLEAN:
+                generator.writeBoolean((Boolean) value);
+                break;
+            case STRING:
+                generator.writeString((String) value);
+                break;
+            case BYTES:
+                writeBytes(generator, value);
+                break;
+            case ARRAY:
+                generator.writeStartArray();
+                for (Object element : (List<?>) value) {
+                    writeValue(generator, schema.valueSchema(), element, isoTemporals);
+                }
+                generator.writeEndArray();
+                break;
+            case MAP:
+                writeMap(generator, schema.keySchema(), schema.valueSchema(), (Map<?, ?>) value, isoTemporals);
+                break;
+            case STRUCT:
+                writeStruct(generator, (Struct) value, isoTemporals);
+                break;
+            default:
+                throw new DataException("Unsupported Connect type: " + schema.type());
+        }
+    }
+
+    static void writeStruct(JsonGenerator generator, Struct struct, boolean isoTemporals) throws IOException {
+        generator.writeStartObject();
+        for (Field field : struct.schema().fields()) {
+            generator.writeFieldName(field.name());
+            writeValue(generator, field.schema(), struct.get(field), isoTemporals);
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Epoch millis match what ObjectMapper wrote for java.util.Date; ISO keeps the logical type's
+     * precision (a date, a time of day or an instant).
+     */
+    private static void writeTemporal(JsonGenerator generator, String logicalName, java.util.Date value, boolean isoTemporals) throws IOException {
+        long millis = value.getTime();
+        if (!isoTemporals) {
+            generator.writeNumber(millis);
+            return;
+        }
+        switch (logicalName) {
+            case Date.LOGICAL_NAME:
+                generator.writeString(LocalDate.ofEpochDay(Math.floorDiv(millis, 86_400_000L)).toString());
+                break;
+            case Time.LOGICAL_NAME:
+                generator.writeString(LocalTime.ofNanoOfDay(millis * 1_000_000L).toString());
+                break;
+            default:
+                generator.writeString(Instant.ofEpochMilli(millis).toString());
+                break;
+        }
+    }
+
+    /**
+     * String-like keys become a JSON object; any other key type becomes an array of
+     * {"key": ..., "value": ...} entries so the keys keep their type.
+     */
+    private static void writeMap(JsonGenerator generator, Schema keySchema, Schema valueSchema, Map<?, ?> map, boolean isoTemporals) throws IOException {
+        boolean objectKeys = keySchema == null || keySchema.type() == Schema.Type.STRING;
+        if (objectKeys) {
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                writeValue(generator, valueSchema, entry.getValue(), isoTemporals);
+            }
+            generator.writeEndObject();
+            return;
+        }
+
+        generator.writeStartArray();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            generator.writeStartObject();
+            generator.writeFieldName("key");
+            writeValue(generator, keySchema, entry.getKey(), isoTemporals);
+            generator.writeFieldName("value");
+            writeValue(generator, valueSchema, entry.getValue(), isoTemporals);
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeBytes(JsonGenerator generator, Object value) throws IOException {
+        if (value instanceof ByteBuffer) {
+            ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+            if (buffer.hasArray()) {
+                generator.writeBinary(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                return;
+            }
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            generator.writeBinary(bytes);
+            return;
+        }
+        generator.writeBinary((byte[]) value);
+    }
+
+    private static void writeSchemaless(JsonGenerator generator, Object value, boolean isoTemporals) throws IOException {
+        if (value instanceof Struct) {
+            writeStruct(generator, (Struct) value, isoTemporals);
+        } else if (value instanceof Map) {
+            writeMap(generator, null, null, (Map<?, ?>) value, isoTemporals);
+        } else if (value instanceof List) {
+            generator.writeStartArray();
+            for (Object element : (List<?>) value) {
+                writeValue(generator, null, element, isoTemporals);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof BigDecimal) {
+            generator.writeNumber((BigDecimal) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            generator.writeNumber(((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            generator.writeNumber(((Number) value).longValue());
+        } else if (value instanceof byte[] || value instanceof ByteBuffer) {
+            writeBytes(generator, value);
+        } else if (value instanceof java.util.Date) {
+            writeTemporal(generator, Timestamp.LOGICAL_NAME, (java.util.Date) value, isoTemporals);
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    /**
+     * Unsynchronised Writer over a StringBuilder, reset between records instead of reallocated.
+     */
+    private static final class StringBuilderWriter extends Writer {
+        private final StringBuilder builder = new StringBuilder(1024);
+
+        void reset() {
+            builder.setLength(0);
+        }
+
+        int capacity() {
+            return builder.capacity();
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            builder.append(chars, offset, length);
+        }
+
+        @Override
+        public void write(String text, int offset, int length) {
+            builder.append(text, offset, offset + length);
+        }
+
+        @Override
+        public void write(int c) {
+            builder.append((char) c);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return builder.toString();
+        }
+    }
+}
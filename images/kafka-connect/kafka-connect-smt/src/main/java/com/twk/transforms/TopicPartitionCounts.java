@@ -0,0 +1,133 @@
+package com.twk.transforms;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.KafkaFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Partition counts of destination topics, used to pick a partition from the record key.
+ * <p>
+ * Counts come from configuration and, when an Admin client config is given, are refreshed
+ * periodically from the cluster. A topic seen for the first time is looked up in the background;
+ * until its count is known {@link #partitionCount(String)} returns null and the caller falls back
+ * to producer-side partitioning. Topics are described in one request but resolved one by one, so
+ * a missing or unauthorized topic does not hold back the counts of the others.
+ */
+final class TopicPartitionCounts implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TopicPartitionCounts.class);
+    private static final long DESCRIBE_TIMEOUT_MS = 30_000L;
+
+    private final Map<String, Integer> configured;
+    private final Map<String, Integer> discovered = new ConcurrentHashMap<>();
+    private final Set<String> requested = ConcurrentHashMap.newKeySet();
+    private final Admin admin;
+    private final ScheduledExecutorService refresher;
+
+    /**
+     * @param configured  fixed counts, which always win over discovered ones
+     * @param adminConfig Admin client config, or null to use the configured counts only
+     * @param refreshMs   how often discovered counts are refreshed
+     */
+    TopicPartitionCounts(Map<String, Integer> configured, Map<String, Object> adminConfig, long refreshMs) {
+        this.configured = new HashMap<>(configured);
+
+        if (adminConfig == null) {
+            this.admin = null;
+            this.refresher = null;
+            return;
+        }
+
+        this.admin = Admin.create(adminConfig);
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-partition-counts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(() -> describe(new ArrayList<>(requested)), refreshMs, refreshMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Parses "topic:count" entries.
+     */
+    static Map<String, Integer> parse(List<String> entries) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String entry : entries) {
+            String[] pair = entry.split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected topic:count but got: " + entry);
+            }
+            counts.put(pair[0].trim(), Integer.parseInt(pair[1].trim()));
+        }
+        return counts;
+    }
+
+    Integer partitionCount(String topic) {
+        Integer count = configured.get(topic);
+        if (count != null) {
+            return count;
+        }
+
+        count = discovered.get(topic);
+        if (count == null && admin != null && requested.add(topic)) {
+            try {
+                refresher.execute(() -> describe(Collections.singletonList(topic)));
+            } catch (RejectedExecutionException e) {
+                // Closed
+            }
+        }
+        return count;
+    }
+
+    private void describe(List<String> topics) {
+        if (topics.isEmpty()) {
+            return;
+        }
+        Map<String, KafkaFuture<TopicDescription>> descriptions;
+        try {
+            descriptions = admin.describeTopics(topics).topicNameValues();
+        } catch (Exception e) {
+            log.warn("Failed to describe topics {}, falling back to producer partitioning for them", topics, e);
+            return;
+        }
+
+        long deadline = System.currentTimeMillis() + DESCRIBE_TIMEOUT_MS;
+        for (Map.Entry<String, KafkaFuture<TopicDescription>> entry : descriptions.entrySet()) {
+            String topic = entry.getKey();
+            try {
+                long remainingMs = Math.max(0, deadline - System.currentTimeMillis());
+                int count = entry.getValue().get(remainingMs, TimeUnit.MILLISECONDS).partitions().size();
+                Integer previous = discovered.put(topic, count);
+                if (previous != null && previous != count) {
+                    log.info("Topic {} now has {} partitions (was {})", topic, count, previous);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | TimeoutException e) {
+                log.warn("Failed to describe topic {}, falling back to producer partitioning for it", topic, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+        if (admin != null) {
+            admin.close();
+        }
+    }
+}
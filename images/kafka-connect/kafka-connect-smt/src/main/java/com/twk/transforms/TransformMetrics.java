@@ -0,0 +1,223 @@
+package com.twk.transforms;
+
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.connect.transforms.util.SimpleConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * Record counts and apply() latency of one transform instance, exposed as a JMX MBean so the
+ * Prometheus JMX exporter can scrape it.
+ * <p>
+ * Transforms are not told which connector they belong to, so unless {@code metrics.connector} is
+ * set the MBean is registered lazily from the first record, using the Connect task thread's name
+ * ({@code task-thread-<connector>-<task>}). Metrics are off unless {@code metrics.enabled} is
+ * set, and while disabled every call is a single branch.
+ * <p>
+ * Record counts are cumulative so they can be scraped as counters; latencies cover the last
+ * minute (see {@link LatencyHistogram}).
+ */
+public class TransformMetrics implements TransformMetricsMBean {
+
+    private static final Logger log = LoggerFactory.getLogger(TransformMetrics.class);
+
+    static final String METRICS_ENABLED_CONFIG = "metrics.enabled";
+    static final String METRICS_CONNECTOR_CONFIG = "metrics.connector";
+
+    private static final String DOMAIN = "com.twk.transforms";
+    private static final String TASK_THREAD_PREFIX = "task-thread-";
+
+    private final String type;
+    private final boolean enabled;
+    private final String connector;
+    private volatile boolean registered;
+    private ObjectName objectName;
+
+    private final LongAdder recordsIn = new LongAdder();
+    private final LongAdder recordsOut = new LongAdder();
+    private final LongAdder recordsDropped = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram applyLatency = new LatencyHistogram();
+
+    TransformMetrics(String type, SimpleConfig config) {
+        this.type = type;
+        this.enabled = config.getBoolean(METRICS_ENABLED_CONFIG);
+        this.connector = config.getString(METRICS_CONNECTOR_CONFIG);
+    }
+
+    /**
+     * Adds the metrics settings to a transform's config definition.
+     */
+    static ConfigDef addConfig(ConfigDef configDef) {
+        return configDef
+                .define(METRICS_ENABLED_CONFIG, ConfigDef.Type.BOOLEAN, false, ConfigDef.Importance.LOW, "Expose record counts and latency over JMX")
+                .define(METRICS_CONNECTOR_CONFIG, ConfigDef.Type.STRING, null, ConfigDef.Importance.LOW,
+                        "Connector name used in the MBean name; defaults to the connector and task taken from the task thread");
+    }
+
+    /**
+     * Runs one apply() call through {@code transform}, recording its latency and outcome.
+     */
+    <R> R apply(R record, UnaryOperator<R> transform) {
+        long start = start();
+        try {
+            R result = transform.apply(record);
+            recordApply(start, result != null);
+            return result;
+        } catch (RuntimeException e) {
+            recordError(start);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the start time to pass to {@link #recordApply}, or 0 when disabled.
+     */
+    long start() {
+        if (!enabled) {
+            return 0L;
+        }
+        if (!registered) {
+            register();
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Records one apply() call that returned a record ({@code out}) or null.
+     */
+    void recordApply(long start, boolean out) {
+        if (!enabled) {
+            return;
+        }
+        applyLatency.record(System.nanoTime() - start);
+        recordsIn.increment();
+        if (out) {
+            recordsOut.increment();
+        } else {
+            recordsDropped.increment();
+        }
+    }
+
+    void recordError(long start) {
+        if (!enabled) {
+            return;
+        }
+        applyLatency.record(System.nanoTime() - start);
+        recordsIn.increment();
+        errors.increment();
+    }
+
+    boolean enabled() {
+        return enabled;
+    }
+
+    private synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true; // Even on failure, so a broken registration is not retried per record
+
+        String scope = connector;
+        String task = null;
+        if (scope == null) {
+            String thread = Thread.currentThread().getName();
+            scope = thread.startsWith(TASK_THREAD_PREFIX) ? thread.substring(TASK_THREAD_PREFIX.length()) : thread;
+            int dash = scope.lastIndexOf('-');
+            if (dash > 0 && scope.substring(dash + 1).chars().allMatch(Character::isDigit)) {
+                task = scope.substring(dash + 1);
+                scope = scope.substring(0, dash);
+            }
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String base = DOMAIN + ":type=" + type + ",connector=" + sanitize(scope) + (task != null ? ",task=" + task : "");
+        try {
+            for (int instance = 0; ; instance++) {
+                ObjectName name = new ObjectName(instance == 0 ? base : base + ",instance=" + instance);
+                try {
+                    server.registerMBean(this, name);
+                    objectName = name;
+                    log.debug("Registered transform metrics {}", name);
+                    return;
+                } catch (InstanceAlreadyExistsException e) {
+                    // Same transform twice in one chain, use the next instance number
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to register transform metrics for {}", base, e);
+        }
+    }
+
+    synchronized void close() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (Exception e) {
+            log.debug("Failed to unregister transform metrics {}", objectName, e);
+        }
+        objectName = null;
+    }
+
+    private static String sanitize(String value) {
+        return value.replaceAll("[,=:*?\"\\s]", "_");
+    }
+
+    static double micros(double nanos) {
+        return nanos / 1_000.0;
+    }
+
+    @Override
+    public long getRecordsIn() {
+        return recordsIn.sum();
+    }
+
+    @Override
+    public long getRecordsOut() {
+        return recordsOut.sum();
+    }
+
+    @Override
+    public long getRecordsDropped() {
+        return recordsDropped.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getApplyLatencyMeanMicros() {
+        return micros(applyLatency.mean());
+    }
+
+    @Override
+    public double getApplyLatencyP50Micros() {
+        return micros(applyLatency.percentile(0.50));
+    }
+
+    @Override
+    public double getApplyLatencyP99Micros() {
+        return micros(applyLatency.percentile(0.99));
+    }
+
+    @Override
+    public double getApplyLatencyP999Micros() {
+        return micros(applyLatency.percentile(0.999));
+    }
+
+    @Override
+    public double getApplyLatencyMaxMicros() {
+        return micros(applyLatency.max());
+    }
+}
@@ -0,0 +1,28 @@
+package com.twk.transforms;
+
+/**
+ * JMX view of a transform's throughput and apply() latency, registered as
+ * {@code com.twk.transforms:type=<Transform>,connector=<connector>,task=<task>}. Record counts
+ * are cumulative; latencies cover the last minute.
+ */
+public interface TransformMetricsMBean {
+
+    long getRecordsIn();
+
+    long getRecordsOut();
+
+    /** Records the transform filtered out by returning null. */
+    long getRecordsDropped();
+
+    long getErrors();
+
+    double getApplyLatencyMeanMicros();
+
+    double getApplyLatencyP50Micros();
+
+    double getApplyLatencyP99Micros();
+
+    double getApplyLatencyP999Micros();
+
+    double getApplyLatencyMaxMicros();
+}
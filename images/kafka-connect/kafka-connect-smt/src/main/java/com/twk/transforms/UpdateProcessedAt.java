@@ -7,6 +7,7 @@ import org.apache.kafka.connect.data.SchemaBuilder;
 import org.apache.kafka.connect.data.Struct;
 import org.apache.kafka.connect.header.Header;
 import org.apache.kafka.connect.transforms.Transformation;
+import org.apache.kafka.connect.transforms.util.SimpleConfig;
 import org.apache.kafka.connect.errors.ConnectException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,23 +22,36 @@ public class UpdateProcessedAt<R extends ConnectRecord<R>> implements Transforma
     // Hard-coded header name
     private static final String ID_HEADER_NAME = "id";
 
-    // Configuration definition (empty since we don't need any config)
-    public static final ConfigDef CONFIG_DEF = new ConfigDef();
+    // Fields of the update record, also read by ProcessedAtSinkTask
+    static final String ID_FIELD = "Id";
+    static final String PROCESSED_AT_FIELD = "ProcessedAt";
+
+    // Configuration definition
+    public static final ConfigDef CONFIG_DEF = TransformMetrics.addConfig(new ConfigDef());
 
     private Schema updateSchema;
+    private final HeaderValues headerValues = new HeaderValues(0); // Ids are unique, nothing to intern
+    private TransformMetrics metrics;
 
     @Override
     public void configure(Map<String, ?> props) {
+        SimpleConfig config = new SimpleConfig(CONFIG_DEF, props);
+        metrics = new TransformMetrics("UpdateProcessedAt", config);
+
         // Create schema for the update record
         this.updateSchema = SchemaBuilder.struct()
                 .name("UpdateProcessedAt")
-                .field("Id", Schema.STRING_SCHEMA)
-                .field("ProcessedAt", Schema.STRING_SCHEMA)  // Using string for DATETIME2 compatibility
+                .field(ID_FIELD, Schema.STRING_SCHEMA)
+                .field(PROCESSED_AT_FIELD, Schema.STRING_SCHEMA)  // Using string for DATETIME2 compatibility
                 .build();
     }
 
     @Override
     public R apply(R record) {
+        return metrics.apply(record, this::transform);
+    }
+
+    private R transform(R record) {
 
         if (record == null) {
             return record;
@@ -53,8 +67,8 @@ public class UpdateProcessedAt<R extends ConnectRecord<R>> implements Transforma
 
             // Create new record with only ID and ProcessedAt
             Struct updateStruct = new Struct(updateSchema);
-            updateStruct.put("Id", id);
-            updateStruct.put("ProcessedAt", Instant.now().toString()); // ISO-8601 format
+            updateStruct.put(ID_FIELD, id);
+            updateStruct.put(PROCESSED_AT_FIELD, Instant.now().toString()); // ISO-8601 format
 
             // Return new record with update data
             return record.newRecord(
@@ -79,12 +93,7 @@ public class UpdateProcessedAt<R extends ConnectRecord<R>> implements Transforma
         }
 
         Header idHeader = record.headers().lastWithName(ID_HEADER_NAME);
-        if (idHeader == null) {
-            return null;
-        }
-
-        Object value = idHeader.value();
-        return value != null ? value.toString() : null;
+        return headerValues.asString(idHeader);
     }
 
     @Override
@@ -94,6 +103,9 @@ public class UpdateProcessedAt<R extends ConnectRecord<R>> implements Transforma
 
     @Override
     public void close() {
+        if (metrics != null) {
+            metrics.close();
+        }
         log.info("UpdateProcessedAt closed");
     }
 }
\ No newline at end of file
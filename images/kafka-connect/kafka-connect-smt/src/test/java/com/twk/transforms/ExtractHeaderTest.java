@@ -0,0 +1,117 @@
+package com.twk.transforms;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.header.ConnectHeaders;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+public class ExtractHeaderTest {
+
+    private static final Schema ORDER_SCHEMA = SchemaBuilder.struct().name("com.twk.events.OrderCreated")
+            .field("EventId", Schema.INT64_SCHEMA)
+            .field("OrderId", Schema.STRING_SCHEMA)
+            .build();
+
+    private static final Schema PAYMENT_SCHEMA = SchemaBuilder.struct().name("com.twk.events.PaymentCaptured")
+            .field("PaymentId", Schema.STRING_SCHEMA)
+            .build();
+
+    private final ExtractHeader<SourceRecord> transform = new ExtractHeader<>();
+
+    @After
+    public void close() {
+        transform.close();
+    }
+
+    @Test
+    public void replaceModeKeepsOnlyTheHeader() {
+        transform.configure(config("replace"));
+
+        SourceRecord result = transform.apply(record(ORDER_SCHEMA, new Struct(ORDER_SCHEMA).put("EventId", 1L).put("OrderId", "o-1")));
+
+        Struct value = (Struct) result.value();
+        assertEquals(1, value.schema().fields().size());
+        assertEquals("e-1", value.getString("EventId"));
+        assertEquals(ORDER_SCHEMA.name(), value.schema().name());
+    }
+
+    @Test
+    public void mergeReplacesFieldOfTheSameName() {
+        transform.configure(config("merge"));
+
+        SourceRecord result = transform.apply(record(ORDER_SCHEMA, new Struct(ORDER_SCHEMA).put("EventId", 1L).put("OrderId", "o-1")));
+
+        Struct value = (Struct) result.value();
+        assertEquals(2, value.schema().fields().size());
+        assertEquals("OrderId", value.schema().fields().get(0).name());
+        assertEquals(Schema.STRING_SCHEMA, value.schema().field("EventId").schema());
+        assertEquals("e-1", value.getString("EventId"));
+        assertEquals("o-1", value.getString("OrderId"));
+    }
+
+    @Test
+    public void schemalessValuesAreReplacedButCannotBeMerged() {
+        Map<String, Object> schemaless = Collections.singletonMap("OrderId", "o-1");
+
+        transform.configure(config("replace"));
+        Struct replaced = (Struct) transform.apply(record(null, schemaless)).value();
+        assertEquals("e-1", replaced.getString("EventId"));
+
+        ExtractHeader<SourceRecord> merging = new ExtractHeader<>();
+        merging.configure(config("merge"));
+        assertThrows(DataException.class, () -> merging.apply(record(null, schemaless)));
+        merging.close();
+    }
+
+    @Test
+    public void reusesOutputSchemaPerInputSchema() {
+        transform.configure(config("merge"));
+
+        SourceRecord order1 = transform.apply(record(ORDER_SCHEMA, new Struct(ORDER_SCHEMA).put("EventId", 1L).put("OrderId", "o-1")));
+        SourceRecord payment = transform.apply(record(PAYMENT_SCHEMA, new Struct(PAYMENT_SCHEMA).put("PaymentId", "p-1")));
+        SourceRecord order2 = transform.apply(record(ORDER_SCHEMA, new Struct(ORDER_SCHEMA).put("EventId", 2L).put("OrderId", "o-2")));
+
+        assertSame(order1.valueSchema(), order2.valueSchema());
+        assertNotSame(order1.valueSchema(), payment.valueSchema());
+        assertEquals("o-2", ((Struct) order2.value()).getString("OrderId"));
+        assertEquals("p-1", ((Struct) payment.value()).getString("PaymentId"));
+        assertEquals("e-1", ((Struct) payment.value()).getString("EventId"));
+    }
+
+    @Test
+    public void passesRecordsWithoutTheHeaderThrough() {
+        transform.configure(config("merge"));
+
+        SourceRecord record = new SourceRecord(null, null, "orders", 0, ORDER_SCHEMA,
+                new Struct(ORDER_SCHEMA).put("EventId", 1L).put("OrderId", "o-1"));
+
+        assertSame(record, transform.apply(record));
+    }
+
+    private static Map<String, String> config(String mode) {
+        Map<String, String> props = new HashMap<>();
+        props.put("header.name", "id");
+        props.put("target.field", "EventId");
+        props.put("mode", mode);
+        return props;
+    }
+
+    private static SourceRecord record(Schema schema, Object value) {
+        ConnectHeaders headers = new ConnectHeaders();
+        headers.addString("id", "e-1");
+        return new SourceRecord(null, null, "orders", 0, null, null, schema, value, 0L, headers);
+    }
+}
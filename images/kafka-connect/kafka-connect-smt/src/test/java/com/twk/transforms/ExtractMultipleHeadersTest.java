@@ -0,0 +1,111 @@
+package com.twk.transforms;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.header.ConnectHeaders;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class ExtractMultipleHeadersTest {
+
+    private static final Schema ORDER_SCHEMA = SchemaBuilder.struct().name("com.twk.events.OrderCreated")
+            .field("OrderId", Schema.STRING_SCHEMA)
+            .field("Amount", Schema.FLOAT64_SCHEMA)
+            .build();
+
+    private static final Schema PAYMENT_SCHEMA = SchemaBuilder.struct().name("com.twk.events.PaymentCaptured")
+            .field("PaymentId", Schema.STRING_SCHEMA)
+            .build();
+
+    private final ExtractMultipleHeaders<SourceRecord> transform = new ExtractMultipleHeaders<>();
+
+    @After
+    public void close() {
+        transform.close();
+    }
+
+    @Test
+    public void writesPayloadAsJsonWithHeadersInConfiguredOrder() {
+        transform.configure(config("json"));
+
+        SourceRecord result = transform.apply(record(ORDER_SCHEMA, new Struct(ORDER_SCHEMA).put("OrderId", "o-1").put("Amount", 12.5)));
+
+        Struct value = (Struct) result.value();
+        assertEquals("EventId", value.schema().fields().get(0).name());
+        assertEquals("EventType", value.schema().fields().get(1).name());
+        assertEquals("e-1", value.getString("EventId"));
+        assertEquals("OrderCreated", value.getString("EventType"));
+        assertEquals("{\"OrderId\":\"o-1\",\"Amount\":12.5}", value.getString("Payload"));
+    }
+
+    @Test
+    public void nestsOriginalStructInStructMode() {
+        transform.configure(config("struct"));
+
+        Struct order = new Struct(ORDER_SCHEMA).put("OrderId", "o-1").put("Amount", 12.5);
+        SourceRecord result = transform.apply(record(ORDER_SCHEMA, order));
+
+        Struct value = (Struct) result.value();
+        assertSame(ORDER_SCHEMA, value.schema().field("Payload").schema());
+        assertSame(order, value.getStruct("Payload"));
+        assertEquals("e-1", value.getString("EventId"));
+    }
+
+    @Test
+    public void keepsOneOutputSchemaPerInputSchema() {
+        transform.configure(config("struct"));
+
+        SourceRecord order1 = transform.apply(record(ORDER_SCHEMA, new Struct(ORDER_SCHEMA).put("OrderId", "o-1").put("Amount", 1.0)));
+        SourceRecord payment = transform.apply(record(PAYMENT_SCHEMA, new Struct(PAYMENT_SCHEMA).put("PaymentId", "p-1")));
+        SourceRecord order2 = transform.apply(record(ORDER_SCHEMA, new Struct(ORDER_SCHEMA).put("OrderId", "o-2").put("Amount", 2.0)));
+
+        assertSame(order1.valueSchema(), order2.valueSchema());
+        assertNotSame(order1.valueSchema(), payment.valueSchema());
+        assertEquals("p-1", ((Struct) payment.value()).getStruct("Payload").getString("PaymentId"));
+    }
+
+    @Test
+    public void decodesByteHeadersAndTypedValues() {
+        Map<String, String> props = config("json");
+        props.put("headers.to.extract", "id,payload-type,sequence");
+        props.put("headers.types", "id:uuid,sequence:long");
+        transform.configure(props);
+
+        ConnectHeaders headers = new ConnectHeaders();
+        headers.addBytes("id", "3F2504E0-4F89-11D3-9A0C-0305E82C3301".getBytes(StandardCharsets.UTF_8));
+        headers.addBytes("payload-type", "OrderCreated".getBytes(StandardCharsets.UTF_8));
+        headers.addString("sequence", "42");
+        Struct order = new Struct(ORDER_SCHEMA).put("OrderId", "o-1").put("Amount", 1.0);
+
+        Struct value = (Struct) transform.apply(new SourceRecord(null, null, "orders", 0, null, null, ORDER_SCHEMA, order, null, headers)).value();
+
+        assertEquals("3f2504e0-4f89-11d3-9a0c-0305e82c3301", value.getString("EventId"));
+        assertEquals("OrderCreated", value.getString("EventType"));
+        assertEquals(Long.valueOf(42L), value.getInt64("sequence"));
+    }
+
+    private static Map<String, String> config(String payloadFormat) {
+        Map<String, String> props = new HashMap<>();
+        props.put("headers.to.extract", "id,payload-type");
+        props.put("headers.rename.mapping", "id:EventId,payload-type:EventType");
+        props.put("payload.format", payloadFormat);
+        return props;
+    }
+
+    private static SourceRecord record(Schema schema, Struct value) {
+        ConnectHeaders headers = new ConnectHeaders();
+        headers.addString("id", "e-1");
+        headers.addString("payload-type", "OrderCreated");
+        return new SourceRecord(null, null, "orders", 0, null, null, schema, value, null, headers);
+    }
+}
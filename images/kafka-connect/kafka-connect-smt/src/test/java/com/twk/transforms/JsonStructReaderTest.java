@@ -0,0 +1,200 @@
+package com.twk.transforms;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import io.confluent.connect.avro.AvroData;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class JsonStructReaderTest {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final AvroData AVRO_DATA = new AvroData(100);
+
+    private static final String ADDRESS = "{'type':'record','name':'Address','fields':[{'name':'Street','type':'string'}]}";
+
+    @Test
+    public void readsPrimitives() throws IOException {
+        Struct struct = read("{'name':'S','type':'string'},{'name':'I','type':'int'},{'name':'L','type':'long'},"
+                        + "{'name':'F','type':'float'},{'name':'D','type':'double'},{'name':'B','type':'boolean'}",
+                "{'S':'x','I':7,'L':9007199254740993,'F':1.5,'D':2.25,'B':true}");
+
+        assertEquals("x", struct.get("S"));
+        assertEquals(7, struct.get("I"));
+        assertEquals(9007199254740993L, struct.get("L"));
+        assertEquals(1.5f, struct.get("F"));
+        assertEquals(2.25, struct.get("D"));
+        assertEquals(true, struct.get("B"));
+    }
+
+    @Test
+    public void acceptsNumericStrings() throws IOException {
+        Struct struct = read("{'name':'I','type':'int'},{'name':'D','type':'double'}", "{'I':'12','D':'0.5'}");
+
+        assertEquals(12, struct.get("I"));
+        assertEquals(0.5, struct.get("D"));
+    }
+
+    @Test
+    public void readsNestedRecordsNullablesAndDefaults() throws IOException {
+        Struct struct = read("{'name':'Home','type':" + ADDRESS + "},"
+                        + "{'name':'Work','type':['null','Address'],'default':null},"
+                        + "{'name':'Note','type':['null','string'],'default':null},"
+                        + "{'name':'Count','type':'int','default':5}",
+                "{'Home':{'Street':'Main 1'},'Work':null}");
+
+        assertEquals("Main 1", struct.getStruct("Home").get("Street"));
+        assertNull(struct.get("Work"));
+        assertNull(struct.get("Note"));
+        assertEquals(5, struct.get("Count"));
+    }
+
+    @Test
+    public void readsArraysAndMaps() throws IOException {
+        Struct struct = read("{'name':'Ids','type':{'type':'array','items':['null','int']}},"
+                        + "{'name':'Lines','type':{'type':'array','items':" + ADDRESS + "}},"
+                        + "{'name':'Totals','type':{'type':'map','values':'long'}}",
+                "{'Ids':[1,null,3],'Lines':[{'Street':'a'},{'Street':'b'}],'Totals':{'eu':10,'us':0}}");
+
+        assertEquals(Arrays.asList(1, null, 3), struct.get("Ids"));
+        List<?> lines = (List<?>) struct.get("Lines");
+        assertEquals("b", ((Struct) lines.get(1)).get("Street"));
+        Map<String, Long> totals = new HashMap<>();
+        totals.put("eu", 10L);
+        totals.put("us", 0L);
+        assertEquals(totals, struct.get("Totals"));
+    }
+
+    @Test
+    public void readsEnumsFixedAndBytes() throws IOException {
+        String fields = "{'name':'Status','type':{'type':'enum','name':'Status','symbols':['NEW','DONE']}},"
+                + "{'name':'Hash','type':{'type':'fixed','name':'Hash','size':4}},"
+                + "{'name':'Blob','type':'bytes'}";
+
+        Struct struct = read(fields, "{'Status':'DONE','Hash':'AQIDBA==','Blob':'aGk='}");
+
+        assertEquals("DONE", struct.get("Status"));
+        assertArrayEquals(new byte[]{1, 2, 3, 4}, (byte[]) struct.get("Hash"));
+        assertArrayEquals("hi".getBytes(), (byte[]) struct.get("Blob"));
+        assertThrows(DataException.class, () -> read(fields, "{'Status':'LOST','Hash':'AQIDBA==','Blob':''}"));
+        assertThrows(DataException.class, () -> read(fields, "{'Status':'NEW','Hash':'AQI=','Blob':''}"));
+    }
+
+    @Test
+    public void readsGeneralUnionsByTokenAndWrapper() throws IOException {
+        String fields = "{'name':'Value','type':['null','string','int'," + ADDRESS + "]}";
+
+        Struct string = (Struct) read(fields, "{'Value':'x'}").get("Value");
+        Struct number = (Struct) read(fields, "{'Value':5}").get("Value");
+        Struct wrapped = (Struct) read(fields, "{'Value':{'int':6}}").get("Value");
+        Struct record = (Struct) read(fields, "{'Value':{'Street':'Main 1'}}").get("Value");
+
+        assertEquals("x", branch(string, 0));
+        assertEquals(5, branch(number, 1));
+        assertEquals(6, branch(wrapped, 1));
+        assertEquals("Main 1", ((Struct) branch(record, 2)).get("Street"));
+        assertNull(branch(number, 0));
+    }
+
+    @Test
+    public void readsLogicalTypesFromNumbersAndText() throws IOException {
+        String fields = "{'name':'Price','type':{'type':'bytes','logicalType':'decimal','precision':10,'scale':2}},"
+                + "{'name':'Day','type':{'type':'int','logicalType':'date'}},"
+                + "{'name':'Cutoff','type':{'type':'int','logicalType':'time-millis'}},"
+                + "{'name':'At','type':{'type':'long','logicalType':'timestamp-millis'}}";
+
+        Struct numbers = read(fields, "{'Price':12.3,'Day':19723,'Cutoff':61200000,'At':1704067200123}");
+        Struct text = read(fields, "{'Price':'BNI=','Day':'2024-01-01','Cutoff':'17:00','At':'2024-01-01T00:00:00.123Z'}");
+        Struct localTimestamp = read(fields, "{'Price':0,'Day':0,'Cutoff':0,'At':'2024-01-01T00:00:00.123'}");
+
+        assertEquals(new BigDecimal("12.30"), numbers.get("Price"));
+        assertEquals(new java.util.Date(1704067200000L), numbers.get("Day"));
+        assertEquals(new java.util.Date(61200000L), numbers.get("Cutoff"));
+        assertEquals(new java.util.Date(1704067200123L), numbers.get("At"));
+
+        assertEquals(new BigDecimal("12.34"), text.get("Price"));
+        assertEquals(numbers.get("Day"), text.get("Day"));
+        assertEquals(numbers.get("Cutoff"), text.get("Cutoff"));
+        assertEquals(numbers.get("At"), text.get("At"));
+        assertEquals(numbers.get("At"), localTimestamp.get("At"));
+
+        assertThrows(DataException.class, () -> read(fields, "{'Price':1.234,'Day':0,'Cutoff':0,'At':0}"));
+    }
+
+    @Test
+    public void skipsUnknownFields() throws IOException {
+        Struct struct = read("{'name':'Id','type':'string'}", "{'Extra':{'Nested':[1,{'a':2}]},'Id':'e-1','More':[[]]}");
+
+        assertEquals("e-1", struct.get("Id"));
+        assertEquals(1, struct.schema().fields().size());
+    }
+
+    @Test
+    public void rejectsTypeMismatches() {
+        assertThrows(DataException.class, () -> read("{'name':'Count','type':'int'}", "{'Count':'abc'}"));
+        assertThrows(DataException.class, () -> read("{'name':'Count','type':'long'}", "{'Count':true}"));
+        assertThrows(DataException.class, () -> read("{'name':'Name','type':'string'}", "{'Name':{'first':'x'}}"));
+        assertThrows(DataException.class, () -> read("{'name':'Ids','type':{'type':'array','items':'int'}}", "{'Ids':{}}"));
+        assertThrows(DataException.class, () -> read("{'name':'Id','type':'string'}", "['not','an','object']"));
+    }
+
+    @Test
+    public void readsOnlyRealBooleans() throws IOException {
+        String fields = "{'name':'Paid','type':'boolean'}";
+
+        assertEquals(true, read(fields, "{'Paid':true}").get("Paid"));
+        assertEquals(false, read(fields, "{'Paid':'false'}").get("Paid"));
+        assertEquals(true, read(fields, "{'Paid':'true'}").get("Paid"));
+        for (String malformed : new String[]{"'yes'", "'1x'", "1", "''"}) {
+            assertThrows(malformed, DataException.class, () -> read(fields, "{'Paid':" + malformed + "}"));
+        }
+    }
+
+    @Test
+    public void rejectsMissingRequiredField() {
+        DataException e = assertThrows(DataException.class,
+                () -> read("{'name':'Id','type':'string'},{'name':'Count','type':'int','default':0}", "{'Count':1}"));
+
+        assertTrue(e.getMessage().contains("Id"));
+    }
+
+    @Test
+    public void rejectsValueWithoutUnionBranch() {
+        String fields = "{'name':'Value','type':['null','string','int']}";
+
+        assertThrows(DataException.class, () -> read(fields, "{'Value':true}"));
+        assertThrows(DataException.class, () -> read(fields, "{'Value':[1]}"));
+        assertThrows(DataException.class, () -> read(fields, "{'Value':{'Street':'Main 1'}}"));
+    }
+
+    private static Object branch(Struct union, int index) {
+        return union.get(union.schema().fields().get(index));
+    }
+
+    /**
+     * Compiles a reader for a record with the given fields and reads one payload. Both are written
+     * with single quotes for readability.
+     */
+    private static Struct read(String fields, String payload) throws IOException {
+        String schema = "{'type':'record','name':'Event','namespace':'com.twk.events','fields':[" + fields + "]}";
+        org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(schema.replace('\'', '"'));
+        JsonStructReader reader = JsonStructReader.compile(avroSchema, AVRO_DATA.toConnectSchema(avroSchema));
+        try (JsonParser parser = JSON.createParser(payload.replace('\'', '"'))) {
+            return reader.read(parser);
+        }
+    }
+}
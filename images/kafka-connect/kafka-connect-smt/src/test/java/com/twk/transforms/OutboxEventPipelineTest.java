@@ -0,0 +1,119 @@
+package com.twk.transforms;
+
+import io.confluent.kafka.schemaregistry.avro.AvroSchema;
+import io.confluent.kafka.schemaregistry.testutil.MockSchemaRegistry;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class OutboxEventPipelineTest {
+
+    private static final String ORDER_SCHEMA = "{\"type\":\"record\",\"name\":\"OrderCreated\",\"namespace\":\"com.twk.events\","
+            + "\"fields\":[{\"name\":\"OrderId\",\"type\":\"string\"},{\"name\":\"Amount\",\"type\":\"double\"}]}";
+
+    private static final Schema OUTBOX_SCHEMA = SchemaBuilder.struct().name("Outbox").optional()
+            .field("Id", Schema.STRING_SCHEMA)
+            .field("Topic", Schema.STRING_SCHEMA)
+            .field("Key", Schema.OPTIONAL_STRING_SCHEMA)
+            .field("PayloadType", Schema.STRING_SCHEMA)
+            .field("Payload", Schema.STRING_SCHEMA)
+            .field("AggregateType", Schema.OPTIONAL_STRING_SCHEMA)
+            .build();
+
+    private static final Schema ENVELOPE_SCHEMA = SchemaBuilder.struct().name("outbox.dbo.Outbox.Envelope")
+            .field("before", OUTBOX_SCHEMA)
+            .field("after", OUTBOX_SCHEMA)
+            .field("op", Schema.STRING_SCHEMA)
+            .build();
+
+    private final String scope = "pipeline-" + UUID.randomUUID();
+    private final OutboxEventPipeline<SourceRecord> pipeline = new OutboxEventPipeline<>();
+
+    @Before
+    public void registerSchema() throws Exception {
+        MockSchemaRegistry.getClientForScope(scope).register("orders-value", new AvroSchema(ORDER_SCHEMA));
+
+        Map<String, String> props = new HashMap<>();
+        props.put("router.schema.registry.url", "mock://" + scope);
+        props.put("promote.fields", "AggregateType:aggregate-type");
+        props.put("extract.enabled", "true");
+        props.put("extract.headers.to.extract", "id,aggregate-type");
+        props.put("extract.headers.rename.mapping", "id:EventId,aggregate-type:AggregateType");
+        props.put("extract.payload.format", "struct");
+        pipeline.configure(props);
+    }
+
+    @After
+    public void close() {
+        pipeline.close();
+        MockSchemaRegistry.dropScope(scope);
+    }
+
+    @Test
+    public void unwrapsRoutesAndExtractsInOnePass() {
+        SourceRecord result = pipeline.apply(changeEvent("c", "{\"OrderId\":\"o-1\",\"Amount\":3.5}"));
+
+        assertEquals("orders", result.topic());
+        assertEquals("k-1", result.key());
+        Struct value = (Struct) result.value();
+        assertEquals("e-1", value.getString("EventId"));
+        assertEquals("Order", value.getString("AggregateType"));
+        Struct payload = value.getStruct("Payload");
+        assertEquals("o-1", payload.getString("OrderId"));
+        assertEquals("com.twk.events.OrderCreated", payload.schema().name());
+    }
+
+    @Test
+    public void passesUnroutableRowsOnUnwrapped() {
+        Schema partialSchema = SchemaBuilder.struct().name("Outbox").optional()
+                .field("Id", Schema.STRING_SCHEMA)
+                .field("Topic", Schema.STRING_SCHEMA)
+                .build();
+        Schema envelopeSchema = SchemaBuilder.struct().name("outbox.dbo.Outbox.Envelope")
+                .field("after", partialSchema)
+                .field("op", Schema.STRING_SCHEMA)
+                .build();
+        Struct row = new Struct(partialSchema).put("Id", "e-1").put("Topic", "orders");
+        SourceRecord record = new SourceRecord(null, null, "outbox.dbo.Outbox", 0, Schema.STRING_SCHEMA, "k-1",
+                envelopeSchema, new Struct(envelopeSchema).put("after", row).put("op", "c"));
+
+        SourceRecord result = pipeline.apply(record);
+
+        assertEquals("outbox.dbo.Outbox", result.topic());
+        assertEquals("k-1", result.key());
+        assertSame(partialSchema, result.valueSchema());
+        assertSame(row, result.value());
+    }
+
+    @Test
+    public void dropsUpdatesDeletesAndTombstones() {
+        assertNull(pipeline.apply(changeEvent("u", "{\"OrderId\":\"o-1\",\"Amount\":3.5}")));
+        assertNull(pipeline.apply(new SourceRecord(null, null, "outbox.dbo.Outbox", 0, ENVELOPE_SCHEMA,
+                new Struct(ENVELOPE_SCHEMA).put("op", "d"))));
+        assertNull(pipeline.apply(new SourceRecord(null, null, "outbox.dbo.Outbox", 0, null, null)));
+    }
+
+    private static SourceRecord changeEvent(String op, String payload) {
+        Struct row = new Struct(OUTBOX_SCHEMA)
+                .put("Id", "e-1")
+                .put("Topic", "orders")
+                .put("Key", "k-1")
+                .put("PayloadType", "OrderCreated")
+                .put("Payload", payload)
+                .put("AggregateType", "Order");
+        Struct envelope = new Struct(ENVELOPE_SCHEMA).put("after", row).put("op", op);
+        return new SourceRecord(null, null, "outbox.dbo.Outbox", 0, ENVELOPE_SCHEMA, envelope);
+    }
+}
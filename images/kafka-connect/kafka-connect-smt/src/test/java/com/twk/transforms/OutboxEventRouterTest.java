@@ -0,0 +1,528 @@
+package com.twk.transforms;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.luben.zstd.Zstd;
+import io.confluent.connect.avro.AvroData;
+import io.confluent.kafka.schemaregistry.avro.AvroSchema;
+import io.confluent.kafka.schemaregistry.testutil.MockSchemaRegistry;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xerial.snappy.Snappy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class OutboxEventRouterTest {
+
+    private static final String ORDER_SCHEMA = "{\"type\":\"record\",\"name\":\"OrderCreated\",\"namespace\":\"com.twk.events\","
+            + "\"fields\":[{\"name\":\"OrderId\",\"type\":\"string\"},"
+            + "{\"name\":\"Amount\",\"type\":\"double\"},"
+            + "{\"name\":\"Note\",\"type\":[\"null\",\"string\"],\"default\":null}]}";
+
+    private static final String SHIPMENT_SCHEMA = "{\"type\":\"record\",\"name\":\"ShipmentCreated\",\"namespace\":\"com.twk.events\",\"fields\":["
+            + "{\"name\":\"ShipmentId\",\"type\":\"string\"},"
+            + "{\"name\":\"Items\",\"type\":\"int\"},"
+            + "{\"name\":\"Sequence\",\"type\":\"long\"},"
+            + "{\"name\":\"Weight\",\"type\":\"double\"},"
+            + "{\"name\":\"Express\",\"type\":\"boolean\"},"
+            + "{\"name\":\"Note\",\"type\":[\"null\",\"string\"],\"default\":null},"
+            + "{\"name\":\"Status\",\"type\":{\"type\":\"enum\",\"name\":\"ShipmentStatus\",\"symbols\":[\"PENDING\",\"SHIPPED\"]}},"
+            + "{\"name\":\"Price\",\"type\":{\"type\":\"bytes\",\"logicalType\":\"decimal\",\"precision\":10,\"scale\":2}},"
+            + "{\"name\":\"ShipDate\",\"type\":{\"type\":\"int\",\"logicalType\":\"date\"}},"
+            + "{\"name\":\"Cutoff\",\"type\":{\"type\":\"int\",\"logicalType\":\"time-millis\"}},"
+            + "{\"name\":\"CreatedAt\",\"type\":{\"type\":\"long\",\"logicalType\":\"timestamp-millis\"}},"
+            + "{\"name\":\"Destination\",\"type\":{\"type\":\"record\",\"name\":\"Address\",\"fields\":["
+            + "{\"name\":\"Street\",\"type\":\"string\"},{\"name\":\"Zip\",\"type\":[\"null\",\"string\"],\"default\":null}]}},"
+            + "{\"name\":\"Parcels\",\"type\":{\"type\":\"array\",\"items\":{\"type\":\"record\",\"name\":\"Parcel\",\"fields\":["
+            + "{\"name\":\"Code\",\"type\":\"string\"},{\"name\":\"Grams\",\"type\":\"int\"}]}}},"
+            + "{\"name\":\"Tags\",\"type\":{\"type\":\"map\",\"values\":\"string\"}}]}";
+
+    private static final Schema OUTBOX_SCHEMA = SchemaBuilder.struct().name("Outbox")
+            .field("Id", Schema.STRING_SCHEMA)
+            .field("Topic", Schema.STRING_SCHEMA)
+            .field("Key", Schema.OPTIONAL_STRING_SCHEMA)
+            .field("PayloadType", Schema.STRING_SCHEMA)
+            .field("Payload", Schema.STRING_SCHEMA)
+            .field("Trace", Schema.OPTIONAL_STRING_SCHEMA)
+            .build();
+
+    private static final Schema BINARY_OUTBOX_SCHEMA = SchemaBuilder.struct().name("BinaryOutbox")
+            .field("Id", Schema.STRING_SCHEMA)
+            .field("Topic", Schema.STRING_SCHEMA)
+            .field("PayloadType", Schema.STRING_SCHEMA)
+            .field("Payload", Schema.BYTES_SCHEMA)
+            .build();
+
+    private static final Schema ENCODED_OUTBOX_SCHEMA = SchemaBuilder.struct().name("EncodedOutbox")
+            .field("Id", Schema.STRING_SCHEMA)
+            .field("Topic", Schema.STRING_SCHEMA)
+            .field("PayloadType", Schema.STRING_SCHEMA)
+            .field("Payload", Schema.BYTES_SCHEMA)
+            .field("PayloadEncoding", Schema.OPTIONAL_STRING_SCHEMA)
+            .build();
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final String scope = "outbox-" + UUID.randomUUID();
+    private final String emptyScope = "outbox-empty-" + UUID.randomUUID();
+
+    @After
+    public void dropScopes() {
+        MockSchemaRegistry.dropScope(scope);
+        MockSchemaRegistry.dropScope(emptyScope);
+    }
+
+    @Test
+    public void routesJsonPayloadIntoTypedStruct() throws Exception {
+        MockSchemaRegistry.getClientForScope(scope).register("orders-value", new AvroSchema(ORDER_SCHEMA));
+
+        OutboxEventRouter<SourceRecord> router = new OutboxEventRouter<>();
+        router.configure(config("mock://" + scope));
+
+        SourceRecord routed = router.apply(outboxRecord("orders", "{\"OrderId\":\"o-1\",\"Amount\":12.5,\"Unknown\":[1,2]}"));
+
+        assertEquals("orders", routed.topic());
+        assertEquals("k-1", routed.key());
+        Struct value = (Struct) routed.value();
+        assertEquals("o-1", value.getString("OrderId"));
+        assertEquals(12.5, (Double) value.get("Amount"), 0.0);
+        assertNull(value.get("Note"));
+        assertEquals("com.twk.events.OrderCreated", value.schema().name());
+
+        router.close();
+    }
+
+    @Test
+    public void restoresSchemasFromSnapshotWithoutRegistry() throws Exception {
+        MockSchemaRegistry.getClientForScope(scope).register("orders-value", new AvroSchema(ORDER_SCHEMA));
+        File snapshot = new File(temp.getRoot(), "outbox-schemas.snapshot");
+
+        Map<String, String> props = config("mock://" + scope);
+        props.put("schema.snapshot.path", snapshot.getPath());
+        props.put("schema.warmup.subjects", "orders-value");
+
+        OutboxEventRouter<SourceRecord> warm = new OutboxEventRouter<>();
+        warm.configure(props);
+        warm.close();
+        assertTrue(snapshot.exists());
+
+        // A registry that knows nothing: routing must come from the snapshot alone
+        props.put("schema.registry.url", "mock://" + emptyScope);
+        props.remove("schema.warmup.subjects");
+
+        OutboxEventRouter<SourceRecord> cold = new OutboxEventRouter<>();
+        cold.configure(props);
+        SourceRecord routed = cold.apply(outboxRecord("orders", "{\"OrderId\":\"o-2\",\"Amount\":1}"));
+
+        assertEquals("o-2", ((Struct) routed.value()).getString("OrderId"));
+        cold.close();
+    }
+
+    @Test
+    public void avroPayloadPassesThroughUnchanged() throws Exception {
+        int id = MockSchemaRegistry.getClientForScope(scope).register("orders-value", new AvroSchema(ORDER_SCHEMA));
+        byte[] payload = wireFormat(id, order("o-1", 12.5));
+
+        OutboxEventRouter<SourceRecord> router = new OutboxEventRouter<>();
+        router.configure(config("mock://" + scope, "avro"));
+
+        SourceRecord routed = router.apply(binaryOutboxRecord("orders", payload));
+
+        assertEquals(Schema.BYTES_SCHEMA, routed.valueSchema());
+        assertArrayEquals(payload, (byte[]) routed.value());
+        router.close();
+    }
+
+    @Test
+    public void avroFormatRejectsPayloadsWithoutWireFormat() throws Exception {
+        MockSchemaRegistry.getClientForScope(scope).register("orders-value", new AvroSchema(ORDER_SCHEMA));
+
+        OutboxEventRouter<SourceRecord> router = new OutboxEventRouter<>();
+        router.configure(config("mock://" + scope, "avro"));
+
+        assertThrows(ConnectException.class, () -> router.apply(outboxRecord("orders", "{\"OrderId\":\"o-1\",\"Amount\":1}")));
+        router.close();
+    }
+
+    @Test
+    public void rejectsUnknownAndForeignSchemaIds() throws Exception {
+        MockSchemaRegistry.getClientForScope(scope).register("orders-value", new AvroSchema(ORDER_SCHEMA));
+        int foreignId = MockSchemaRegistry.getClientForScope(scope).register("shipments-value", new AvroSchema(SHIPMENT_SCHEMA));
+
+        OutboxEventRouter<SourceRecord> router = new OutboxEventRouter<>();
+        router.configure(config("mock://" + scope, "avro"));
+
+        byte[] unknown = wireFormat(9999, order("o-1", 1));
+        assertThrows(ConnectException.class, () -> router.apply(binaryOutboxRecord("orders", unknown)));
+        assertThrows(ConnectException.class, () -> router.apply(binaryOutboxRecord("orders", unknown))); // Cached failure
+
+        byte[] foreign = wireFormat(foreignId, order("o-1", 1));
+        assertThrows(ConnectException.class, () -> router.apply(binaryOutboxRecord("orders", foreign)));
+        router.close();
+    }
+
+    @Test
+    public void autoFormatDecodesWireFormatLikeJson() throws Exception {
+        int id = MockSchemaRegistry.getClientForScope(scope).register("orders-value", new AvroSchema(ORDER_SCHEMA));
+
+        OutboxEventRouter<SourceRecord> router = new OutboxEventRouter<>();
+        router.configure(config("mock://" + scope, "auto"));
+
+        SourceRecord fromAvro = router.apply(binaryOutboxRecord("orders", wireFormat(id, order("o-1", 12.5))));
+        SourceRecord fromJson = router.apply(outboxRecord("orders", "{\"OrderId\":\"o-1\",\"Amount\":12.5}"));
+
+        assertEquals(fromJson.valueSchema(), fromAvro.valueSchema());
+        assertEquals(fromJson.value(), fromAvro.value());
+        router.close();
+    }
+
+    @Test
+    public void wireFormatAcceptsNonRecordWriterSchemas() throws Exception {
+        org.apache.avro.Schema stringSchema = new org.apache.avro.Schema.Parser().parse("\"string\"");
+        int id = MockSchemaRegistry.getClientForScope(scope).register("orders-value", new AvroSchema(stringSchema));
+
+        OutboxEventRouter<SourceRecord> passThrough = new OutboxEventRouter<>();
+        passThrough.configure(config("mock://" + scope, "avro"));
+        byte[] payload = wireFormat(id, stringSchema, "o-1");
+        assertArrayEquals(payload, (byte[]) passThrough.apply(binaryOutboxRecord("orders", payload)).value());
+        passThrough.close();
+
+        OutboxEventRouter<SourceRecord> decoding = new OutboxEventRouter<>();
+        decoding.configure(config("mock://" + scope, "auto"));
+        for (String value : Arrays.asList("o-1", "o-22")) { // The second record reuses the reader and decoder
+            SourceRecord routed = decoding.apply(binaryOutboxRecord("orders", wireFormat(id, stringSchema, value)));
+            assertEquals(value, routed.value());
+        }
+        decoding.close();
+    }
+
+    @Test
+    public void rowEncodingOverridesConfiguredEncoding() throws Exception {
+        MockSchemaRegistry.getClientForScope(scope).register("orders-value", new AvroSchema(ORDER_SCHEMA));
+        byte[] json = "{\"OrderId\":\"o-1\",\"Amount\":12.5}".getBytes(StandardCharsets.UTF_8);
+
+        Map<String, String> props = config("mock://" + scope);
+        props.put("payload.encoding", "gzip");
+        OutboxEventRouter<SourceRecord> router = new OutboxEventRouter<>();
+        router.configure(props);
+
+        for (SourceRecord row : Arrays.asList(
+                encodedOutboxRecord(PayloadEncodingTest.gzip(json), null),
+                encodedOutboxRecord(Zstd.compress(json), "zstd"),
+                encodedOutboxRecord(Snappy.compress(json), "snappy-raw"),
+                encodedOutboxRecord(json, "identity"))) {
+            assertEquals("o-1", ((Struct) router.apply(row).value()).getString("OrderId"));
+        }
+        router.close();
+    }
+
+    @Test
+    public void compressedWireFormatIsDecompressedBeforeTheMagicByteCheck() throws Exception {
+        int id = MockSchemaRegistry.getClientForScope(scope).register("orders-value", new AvroSchema(ORDER_SCHEMA));
+        byte[] wire = wireFormat(id, order("o-1", 12.5));
+
+        Map<String, String> props = config("mock://" + scope, "auto");
+        props.put("payload.encoding", "auto");
+        OutboxEventRouter<SourceRecord> auto = new OutboxEventRouter<>();
+        auto.configure(props);
+        SourceRecord decoded = auto.apply(binaryOutboxRecord("orders", PayloadEncodingTest.gzip(wire)));
+        assertEquals("o-1", ((Struct) decoded.value()).getString("OrderId"));
+        auto.close();
+
+        props.put("payload.format", "avro");
+        OutboxEventRouter<SourceRecord> avro = new OutboxEventRouter<>();
+        avro.configure(props);
+        SourceRecord passed = avro.apply(binaryOutboxRecord("orders", PayloadEncodingTest.gzip(wire)));
+        assertArrayEquals(wire, (byte[]) passed.value());
+        avro.close();
+    }
+
+    @Test
+    public void keyHashMatchesTheDefaultPartitioner() throws Exception {
+        MockSchemaRegistry.getClientForScope(scope).register("orders-value", new AvroSchema(ORDER_SCHEMA));
+
+        Map<String, String> props = config("mock://" + scope);
+        props.put("partitioner", "key-hash");
+        props.put("partition.counts", "orders:12");
+        OutboxEventRouter<SourceRecord> router = new OutboxEventRouter<>();
+        router.configure(props);
+
+        // murmur2 of the UTF-8 key, as DefaultPartitioner/BuiltInPartitioner computes it
+        String payload = "{\"OrderId\":\"o-1\",\"Amount\":1}";
+        assertEquals(Integer.valueOf(2), router.apply(outboxRecord("orders", "k-1", payload)).kafkaPartition());
+        assertEquals(Integer.valueOf(0), router.apply(outboxRecord("orders", "order-42", payload)).kafkaPartition());
+        assertEquals(Integer.valueOf(7), router.apply(outboxRecord("orders", "customer-7", payload)).kafkaPartition());
+        router.close();
+    }
+
+    @Test
+    public void keyHashLeavesPartitionToProducerWhenCountIsUnknown() throws Exception {
+        MockSchemaRegistry.getClientForScope(scope).register("payments-value", new AvroSchema(ORDER_SCHEMA));
+
+        Map<String, String> props = config("mock://" + scope);
+        props.put("partitioner", "key-hash");
+        props.put("partition.counts", "orders:12");
+        OutboxEventRouter<SourceRecord> router = new OutboxEventRouter<>();
+        router.configure(props);
+
+        String payload = "{\"OrderId\":\"o-1\",\"Amount\":1}";
+        assertNull(router.apply(outboxRecord("payments", "k-1", payload)).kafkaPartition());
+        assertNull(router.apply(outboxRecord("orders", null, payload)).kafkaPartition());
+        router.close();
+    }
+
+    @Test
+    public void concurrentSnapshotWritersKeepEverySubject() throws Exception {
+        File snapshot = new File(temp.getRoot(), "shared.snapshot");
+        org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(ORDER_SCHEMA);
+
+        ExecutorService tasks = Executors.newFixedThreadPool(8);
+        List<Future<?>> writes = new ArrayList<>();
+        for (int task = 0; task < 8; task++) {
+            String subject = "topic-" + task + "-value";
+            writes.add(tasks.submit(() -> {
+                new SchemaSnapshot(snapshot.toPath()).write(
+                        Collections.singletonList(new RegisteredSchema(subject, 1, 1, avroSchema, null)));
+                return null;
+            }));
+        }
+        for (Future<?> write : writes) {
+            write.get(10, TimeUnit.SECONDS);
+        }
+        tasks.shutdown();
+
+        assertEquals(8, new SchemaSnapshot(snapshot.toPath()).read().size());
+    }
+
+    @Test
+    public void snapshotDropsRemovedAndExpiredSubjects() throws Exception {
+        Path snapshot = new File(temp.getRoot(), "shared.snapshot").toPath();
+        org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(ORDER_SCHEMA);
+        AtomicLong clock = new AtomicLong();
+        SchemaSnapshot task = new SchemaSnapshot(snapshot, 1_000, clock::get);
+        SchemaSnapshot otherTask = new SchemaSnapshot(snapshot, 1_000, clock::get);
+
+        otherTask.write(Collections.singletonList(new RegisteredSchema("shipments-value", 1, 1, avroSchema, null)));
+        task.write(Arrays.asList(
+                new RegisteredSchema("orders-value", 1, 1, avroSchema, null),
+                new RegisteredSchema("payments-value", 1, 1, avroSchema, null)));
+
+        clock.set(500); // payments-value was evicted from the task's cache
+        task.write(Collections.singletonList(new RegisteredSchema("orders-value", 1, 1, avroSchema, null)));
+        assertEquals(Arrays.asList("shipments-value", "orders-value"), subjects(snapshot));
+
+        clock.set(1_000); // Nobody has rewritten shipments-value within the maximum age
+        task.write(Collections.singletonList(new RegisteredSchema("orders-value", 1, 1, avroSchema, null)));
+        assertEquals(Collections.singletonList("orders-value"), subjects(snapshot));
+    }
+
+    @Test
+    public void matchesGenericRecordConversionThroughAvroData() throws Exception {
+        MockSchemaRegistry.getClientForScope(scope).register("shipments-value", new AvroSchema(SHIPMENT_SCHEMA));
+
+        OutboxEventRouter<SourceRecord> router = new OutboxEventRouter<>();
+        router.configure(config("mock://" + scope));
+
+        String[] payloads = {
+                "{\"ShipmentId\":\"s-1\",\"Items\":3,\"Sequence\":9007199254740993,\"Weight\":12.75,\"Express\":true,"
+                        + "\"Note\":\"fragile\",\"Status\":\"SHIPPED\",\"Price\":1234.5,\"ShipDate\":19723,\"Cutoff\":61200000,"
+                        + "\"CreatedAt\":1704067200123,\"Destination\":{\"Street\":\"Main 1\",\"Zip\":\"1011\"},"
+                        + "\"Parcels\":[{\"Code\":\"p-1\",\"Grams\":500},{\"Code\":\"p-2\",\"Grams\":1250}],"
+                        + "\"Tags\":{\"carrier\":\"dhl\",\"lane\":\"eu\"}}",
+                "{\"ShipmentId\":\"s-2\",\"Items\":0,\"Sequence\":-1,\"Weight\":0.1,\"Express\":false,"
+                        + "\"Note\":null,\"Status\":\"PENDING\",\"Price\":-0.01,\"ShipDate\":0,\"Cutoff\":0,"
+                        + "\"CreatedAt\":0,\"Destination\":{\"Street\":\"Side 2\"},\"Parcels\":[],\"Tags\":{}}"
+        };
+
+        org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(SHIPMENT_SCHEMA);
+        AvroData avroData = new AvroData(1000);
+        for (String payload : payloads) {
+            Struct expected = (Struct) avroData.toConnectData(avroSchema, toGenericData(avroSchema, MAPPER.readTree(payload))).value();
+            Struct routed = (Struct) router.apply(outboxRecord("shipments", payload)).value();
+            assertEquals(expected, routed);
+        }
+
+        router.close();
+    }
+
+    /**
+     * The conversion the router used before the streaming reader: a Jackson tree copied into a
+     * GenericRecord and converted with AvroData. Extended to nested records, collections and the
+     * raw Avro forms of the logical types, which AvroData maps to their Connect types.
+     */
+    private static Object toGenericData(org.apache.avro.Schema schema, JsonNode node) throws IOException {
+        if (schema.getType() == org.apache.avro.Schema.Type.UNION) {
+            for (org.apache.avro.Schema branch : schema.getTypes()) {
+                if (branch.getType() != org.apache.avro.Schema.Type.NULL) {
+                    return node == null || node.isNull() ? null : toGenericData(branch, node);
+                }
+            }
+            return null;
+        }
+        if (node == null || node.isNull()) {
+            return null;
+        }
+
+        switch (schema.getType()) {
+            case RECORD:
+                GenericData.Record record = new GenericData.Record(schema);
+                for (org.apache.avro.Schema.Field field : schema.getFields()) {
+                    record.put(field.name(), toGenericData(field.schema(), node.get(field.name())));
+                }
+                return record;
+            case ARRAY:
+                List<Object> list = new ArrayList<>();
+                for (JsonNode element : node) {
+                    list.add(toGenericData(schema.getElementType(), element));
+                }
+                return list;
+            case MAP:
+                Map<String, Object> map = new HashMap<>();
+                for (Iterator<Map.Entry<String, JsonNode>> it = node.fields(); it.hasNext(); ) {
+                    Map.Entry<String, JsonNode> entry = it.next();
+                    map.put(entry.getKey(), toGenericData(schema.getValueType(), entry.getValue()));
+                }
+                return map;
+            case ENUM:
+                return new GenericData.EnumSymbol(schema, node.asText());
+            case BYTES:
+                if (schema.getLogicalType() instanceof LogicalTypes.Decimal) {
+                    int scale = ((LogicalTypes.Decimal) schema.getLogicalType()).getScale();
+                    return ByteBuffer.wrap(node.decimalValue().setScale(scale).unscaledValue().toByteArray());
+                }
+                return node.binaryValue();
+            case STRING:
+                return node.asText();
+            case INT:
+                return node.asInt();
+            case LONG:
+                return node.asLong();
+            case FLOAT:
+                return (float) node.asDouble();
+            case DOUBLE:
+                return node.asDouble();
+            case BOOLEAN:
+                return node.asBoolean();
+            default:
+                throw new IllegalArgumentException("Unsupported Avro type: " + schema.getType());
+        }
+    }
+
+    private static List<String> subjects(Path snapshot) throws IOException {
+        List<String> subjects = new ArrayList<>();
+        for (SchemaSnapshot.Entry entry : new SchemaSnapshot(snapshot).read()) {
+            subjects.add(entry.subject);
+        }
+        return subjects;
+    }
+
+    private static Map<String, String> config(String registryUrl) {
+        Map<String, String> props = new HashMap<>();
+        props.put("schema.registry.url", registryUrl);
+        return props;
+    }
+
+    private static Map<String, String> config(String registryUrl, String payloadFormat) {
+        Map<String, String> props = config(registryUrl);
+        props.put("payload.format", payloadFormat);
+        return props;
+    }
+
+    private static GenericData.Record order(String orderId, double amount) {
+        GenericData.Record order = new GenericData.Record(new org.apache.avro.Schema.Parser().parse(ORDER_SCHEMA));
+        order.put("OrderId", orderId);
+        order.put("Amount", amount);
+        return order;
+    }
+
+    /**
+     * Serializes a record the way KafkaAvroSerializer does: magic byte, schema id, Avro binary body.
+     */
+    private static byte[] wireFormat(int schemaId, GenericRecord record) throws IOException {
+        return wireFormat(schemaId, record.getSchema(), record);
+    }
+
+    private static byte[] wireFormat(int schemaId, org.apache.avro.Schema schema, Object datum) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0);
+        out.write(ByteBuffer.allocate(4).putInt(schemaId).array());
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        new GenericDatumWriter<Object>(schema).write(datum, encoder);
+        encoder.flush();
+        return out.toByteArray();
+    }
+
+    private static SourceRecord encodedOutboxRecord(byte[] payload, String encoding) {
+        Struct outbox = new Struct(ENCODED_OUTBOX_SCHEMA)
+                .put("Id", UUID.randomUUID().toString())
+                .put("Topic", "orders")
+                .put("PayloadType", "OrderCreated")
+                .put("Payload", payload)
+                .put("PayloadEncoding", encoding);
+        return new SourceRecord(null, null, "outbox.dbo.Outbox", 0, ENCODED_OUTBOX_SCHEMA, outbox);
+    }
+
+    private static SourceRecord binaryOutboxRecord(String topic, byte[] payload) {
+        Struct outbox = new Struct(BINARY_OUTBOX_SCHEMA)
+                .put("Id", UUID.randomUUID().toString())
+                .put("Topic", topic)
+                .put("PayloadType", "OrderCreated")
+                .put("Payload", payload);
+        return new SourceRecord(null, null, "outbox.dbo.Outbox", 0, BINARY_OUTBOX_SCHEMA, outbox);
+    }
+
+    private static SourceRecord outboxRecord(String topic, String payload) {
+        return outboxRecord(topic, "k-1", payload);
+    }
+
+    private static SourceRecord outboxRecord(String topic, String key, String payload) {
+        Struct outbox = new Struct(OUTBOX_SCHEMA)
+                .put("Id", UUID.randomUUID().toString())
+                .put("Topic", topic)
+                .put("Key", key)
+                .put("PayloadType", "OrderCreated")
+                .put("Payload", payload);
+        return new SourceRecord(null, null, "outbox.dbo.Outbox", 0, OUTBOX_SCHEMA, outbox);
+    }
+}
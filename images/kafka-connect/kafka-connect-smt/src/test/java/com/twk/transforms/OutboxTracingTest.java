@@ -0,0 +1,131 @@
+package com.twk.transforms;
+
+import io.confluent.kafka.schemaregistry.avro.AvroSchema;
+import io.confluent.kafka.schemaregistry.testutil.MockSchemaRegistry;
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.header.Header;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OutboxTracingTest {
+
+    private static final String ORDER_SCHEMA = "{\"type\":\"record\",\"name\":\"OrderCreated\",\"namespace\":\"com.twk.events\","
+            + "\"fields\":[{\"name\":\"OrderId\",\"type\":\"string\"}]}";
+
+    private static final Schema OUTBOX_SCHEMA = SchemaBuilder.struct().name("Outbox")
+            .field("Id", Schema.STRING_SCHEMA)
+            .field("Topic", Schema.STRING_SCHEMA)
+            .field("PayloadType", Schema.STRING_SCHEMA)
+            .field("Payload", Schema.STRING_SCHEMA)
+            .field("Trace", Schema.OPTIONAL_STRING_SCHEMA)
+            .build();
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+    private static final String PARENT_SPAN_ID = "00f067aa0ba902b7";
+    private static final String TRACEPARENT = "00-" + TRACE_ID + "-" + PARENT_SPAN_ID + "-01";
+
+    private final String scope = "tracing-" + UUID.randomUUID();
+    private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+    private final OutboxEventRouter<SourceRecord> router = new OutboxEventRouter<>();
+
+    @Before
+    public void installSdk() throws Exception {
+        MockSchemaRegistry.getClientForScope(scope).register("orders-value", new AvroSchema(ORDER_SCHEMA));
+
+        GlobalOpenTelemetry.resetForTest();
+        GlobalOpenTelemetry.set(OpenTelemetrySdk.builder()
+                .setTracerProvider(SdkTracerProvider.builder()
+                        .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+                        .build())
+                .build());
+    }
+
+    @After
+    public void close() {
+        router.close();
+        GlobalOpenTelemetry.resetForTest();
+        MockSchemaRegistry.dropScope(scope);
+    }
+
+    @Test
+    public void sampledRecordGetsChildSpanOfTraceColumn() {
+        router.configure(config(true, 1.0));
+
+        SourceRecord routed = router.apply(outboxRecord(TRACEPARENT));
+
+        List<SpanData> spans = exporter.getFinishedSpanItems();
+        assertEquals(1, spans.size());
+        SpanData span = spans.get(0);
+        assertEquals(TRACE_ID, span.getTraceId());
+        assertEquals(PARENT_SPAN_ID, span.getParentSpanId());
+        assertEquals("orders", span.getAttributes().get(AttributeKey.stringKey("messaging.destination.name")));
+        assertNotNull(span.getAttributes().get(AttributeKey.longKey("outbox.schema_lookup_us")));
+        assertNotNull(span.getAttributes().get(AttributeKey.longKey("outbox.payload_parse_us")));
+
+        assertEquals("00-" + TRACE_ID + "-" + span.getSpanId() + "-01", traceparent(routed));
+    }
+
+    @Test
+    public void unsampledRecordPropagatesTraceColumn() {
+        router.configure(config(true, 0.0));
+
+        SourceRecord routed = router.apply(outboxRecord(TRACEPARENT));
+
+        assertTrue(exporter.getFinishedSpanItems().isEmpty());
+        assertEquals(TRACEPARENT, traceparent(routed));
+    }
+
+    @Test
+    public void disabledTracingAddsNothing() {
+        router.configure(config(false, 1.0));
+
+        SourceRecord routed = router.apply(outboxRecord(TRACEPARENT));
+
+        assertTrue(exporter.getFinishedSpanItems().isEmpty());
+        assertNull(traceparent(routed));
+    }
+
+    private Map<String, String> config(boolean tracing, double sampleRatio) {
+        Map<String, String> props = new HashMap<>();
+        props.put("schema.registry.url", "mock://" + scope);
+        props.put("tracing.enabled", String.valueOf(tracing));
+        props.put("tracing.sample.ratio", String.valueOf(sampleRatio));
+        return props;
+    }
+
+    private static String traceparent(SourceRecord record) {
+        Header header = record.headers().lastWithName(OutboxTracing.TRACEPARENT_HEADER);
+        return header != null ? (String) header.value() : null;
+    }
+
+    private static SourceRecord outboxRecord(String trace) {
+        Struct outbox = new Struct(OUTBOX_SCHEMA)
+                .put("Id", UUID.randomUUID().toString())
+                .put("Topic", "orders")
+                .put("PayloadType", "OrderCreated")
+                .put("Payload", "{\"OrderId\":\"o-1\"}")
+                .put("Trace", trace);
+        return new SourceRecord(null, null, "outbox.dbo.Outbox", 0, OUTBOX_SCHEMA, outbox);
+    }
+}
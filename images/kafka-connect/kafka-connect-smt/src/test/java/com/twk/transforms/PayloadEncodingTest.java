@@ -0,0 +1,134 @@
+package com.twk.transforms;
+
+import com.github.luben.zstd.Zstd;
+import org.apache.kafka.connect.errors.DataException;
+import org.junit.Test;
+import org.xerial.snappy.Snappy;
+import org.xerial.snappy.SnappyFramedOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class PayloadEncodingTest {
+
+    private static final byte[] JSON = "{\"OrderId\":\"o-1\",\"Amount\":12.5}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void decodesEveryEncoding() throws IOException {
+        assertArrayEquals(JSON, decode(PayloadEncoding.NONE, JSON));
+        assertArrayEquals(JSON, decode(PayloadEncoding.GZIP, gzip(JSON)));
+        assertArrayEquals(JSON, decode(PayloadEncoding.SNAPPY, snappyFramed(JSON)));
+        assertArrayEquals(JSON, decode(PayloadEncoding.SNAPPY_RAW, Snappy.compress(JSON)));
+        assertArrayEquals(JSON, decode(PayloadEncoding.ZSTD, Zstd.compress(JSON)));
+    }
+
+    @Test
+    public void detectsEncodingsFromMagicBytes() throws IOException {
+        assertEquals(PayloadEncoding.GZIP, PayloadEncoding.detect(gzip(JSON)));
+        assertEquals(PayloadEncoding.SNAPPY, PayloadEncoding.detect(snappyFramed(JSON)));
+        assertEquals(PayloadEncoding.ZSTD, PayloadEncoding.detect(Zstd.compress(JSON)));
+        assertEquals(PayloadEncoding.NONE, PayloadEncoding.detect(Snappy.compress(JSON))); // No magic to detect
+        assertEquals(PayloadEncoding.NONE, PayloadEncoding.detect(JSON));
+        assertEquals(PayloadEncoding.NONE, PayloadEncoding.detect(new byte[0]));
+    }
+
+    @Test
+    public void detectsEncodingsOfBase64Text() throws IOException {
+        Base64.Encoder base64 = Base64.getEncoder();
+        assertEquals(PayloadEncoding.GZIP, PayloadEncoding.detectBase64(base64.encodeToString(gzip(JSON))));
+        assertEquals(PayloadEncoding.SNAPPY, PayloadEncoding.detectBase64(base64.encodeToString(snappyFramed(JSON))));
+        assertEquals(PayloadEncoding.ZSTD, PayloadEncoding.detectBase64(base64.encodeToString(Zstd.compress(JSON))));
+        assertEquals(PayloadEncoding.NONE, PayloadEncoding.detectBase64(new String(JSON, StandardCharsets.UTF_8)));
+        assertEquals(PayloadEncoding.NONE, PayloadEncoding.detectBase64(base64.encodeToString(JSON)));
+        assertEquals(PayloadEncoding.NONE, PayloadEncoding.detectBase64("H4s"));
+    }
+
+    @Test
+    public void gzipReusesThePooledInflaterAcrossPayloads() throws IOException {
+        byte[] large = new byte[100_000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) ('a' + i % 23);
+        }
+        ByteArrayOutputStream concatenated = new ByteArrayOutputStream();
+        concatenated.write(gzip(JSON));
+        concatenated.write(gzip(JSON));
+
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(JSON, decode(PayloadEncoding.GZIP, gzip(JSON)));
+            assertArrayEquals(large, decode(PayloadEncoding.GZIP, gzip(large)));
+        }
+        byte[] twice = new byte[JSON.length * 2];
+        System.arraycopy(JSON, 0, twice, 0, JSON.length);
+        System.arraycopy(JSON, 0, twice, JSON.length, JSON.length);
+        assertArrayEquals(twice, decode(PayloadEncoding.GZIP, concatenated.toByteArray()));
+
+        try (InputStream outer = PayloadEncoding.GZIP.decode(new ByteArrayInputStream(gzip(JSON)))) {
+            assertArrayEquals(large, decode(PayloadEncoding.GZIP, gzip(large))); // Nested on one thread
+            assertArrayEquals(JSON, outer.readAllBytes());
+        }
+    }
+
+    @Test
+    public void gzipRejectsCorruptPayloads() throws IOException {
+        byte[] corrupt = gzip(JSON);
+        corrupt[corrupt.length - 8] ^= 1; // CRC32 trailer
+
+        assertThrows(ZipException.class, () -> decode(PayloadEncoding.GZIP, corrupt));
+        assertThrows(ZipException.class, () -> decode(PayloadEncoding.GZIP, JSON));
+        assertThrows(EOFException.class, () -> decode(PayloadEncoding.GZIP, Arrays.copyOf(gzip(JSON), 20)));
+        assertArrayEquals(JSON, decode(PayloadEncoding.GZIP, gzip(JSON))); // The pooled inflater still works
+    }
+
+    @Test
+    public void plainPayloadsSharingAMagicPrefixAreNotDetected() {
+        assertEquals(PayloadEncoding.NONE, PayloadEncoding.detect("(\"quoted\")".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(PayloadEncoding.NONE, PayloadEncoding.detect(new byte[]{0x1f, '{', '}'}));
+        assertEquals(PayloadEncoding.NONE, PayloadEncoding.detect(new byte[]{0x28, (byte) 0xb5, '{', '}'}));
+        // Snappy stream identifier chunk type and length, but not the "sNaPpY" body
+        assertEquals(PayloadEncoding.NONE, PayloadEncoding.detect(new byte[]{(byte) 0xff, 0x06, 0x00, 0x00, 's', 'n', 'a', 'p', 'p', 'y'}));
+    }
+
+    @Test
+    public void parsesEncodingNames() {
+        assertEquals(PayloadEncoding.SNAPPY_RAW, PayloadEncoding.forName("snappy-raw"));
+        assertEquals(PayloadEncoding.GZIP, PayloadEncoding.forName(" GZIP "));
+        assertEquals(PayloadEncoding.NONE, PayloadEncoding.forName("identity"));
+        assertEquals(PayloadEncoding.NONE, PayloadEncoding.forName(""));
+        assertThrows(DataException.class, () -> PayloadEncoding.forName("brotli"));
+    }
+
+    private static byte[] decode(PayloadEncoding encoding, byte[] payload) throws IOException {
+        try (InputStream in = encoding.decode(new ByteArrayInputStream(payload))) {
+            return in.readAllBytes();
+        }
+    }
+
+    static byte[] gzip(byte[] payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(payload);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] snappyFramed(byte[] payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new SnappyFramedOutputStream(bytes)) {
+            out.write(payload);
+        }
+        return bytes.toByteArray();
+    }
+}
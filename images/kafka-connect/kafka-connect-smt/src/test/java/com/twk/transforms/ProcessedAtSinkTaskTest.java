@@ -0,0 +1,167 @@
+package com.twk.transforms;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.RetriableException;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+public class ProcessedAtSinkTaskTest {
+
+    private static final Schema UPDATE_SCHEMA = SchemaBuilder.struct().name("UpdateProcessedAt")
+            .field("Id", Schema.STRING_SCHEMA)
+            .field("ProcessedAt", Schema.STRING_SCHEMA)
+            .build();
+
+    private final String url = "jdbc:h2:mem:outbox-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+    private final AtomicLong clock = new AtomicLong();
+    private final ProcessedAtSinkTask task = new ProcessedAtSinkTask(clock::get);
+    private Connection db;
+
+    @Before
+    public void createOutbox() throws SQLException {
+        db = DriverManager.getConnection(url);
+        try (Statement statement = db.createStatement()) {
+            statement.execute("CREATE TABLE Outbox (Id VARCHAR(36) PRIMARY KEY, ProcessedAt TIMESTAMP)");
+            statement.execute("INSERT INTO Outbox (Id) VALUES ('e-1'), ('e-2'), ('e-3'), ('e-4')");
+        }
+    }
+
+    @After
+    public void close() throws SQLException {
+        task.stop();
+        db.close();
+    }
+
+    @Test
+    public void mergesEachAcknowledgementWithItsOwnTimestamp() throws SQLException {
+        task.start(config("values", 2, 0L));
+
+        task.put(Arrays.asList(
+                ack("e-1", "2024-05-01T10:00:00Z", 1),
+                ack("e-2", "2024-05-01T10:00:01Z", 2),
+                ack("e-3", "2024-05-01T10:00:02Z", 3),
+                ack("e-1", "2024-05-01T09:59:00Z", 4))); // Older redelivery keeps the later time
+
+        assertEquals(Instant.parse("2024-05-01T10:00:00Z"), processedAt("e-1"));
+        assertEquals(Instant.parse("2024-05-01T10:00:01Z"), processedAt("e-2"));
+        assertEquals(Instant.parse("2024-05-01T10:00:02Z"), processedAt("e-3"));
+        assertNull(processedAt("e-4"));
+    }
+
+    @Test
+    public void holdsPartialBatchUntilFlush() throws SQLException {
+        task.start(config("in-list", 100, 60_000L));
+
+        task.put(Arrays.asList(ack("e-1", "2024-05-01T10:00:00Z", 1), ack("e-2", "2024-05-01T10:00:05Z", 2)));
+        assertNull(processedAt("e-1"));
+
+        task.flush(Collections.emptyMap());
+        assertEquals(Instant.parse("2024-05-01T10:00:05Z"), processedAt("e-1"));
+        assertEquals(Instant.parse("2024-05-01T10:00:05Z"), processedAt("e-2"));
+        assertNull(processedAt("e-3"));
+    }
+
+    @Test
+    public void skipsRedeliveriesWrittenWithinTheWindow() throws SQLException {
+        task.start(dedupeConfig(10, 1_000L));
+
+        task.put(Collections.singletonList(ack("e-1", "2024-05-01T10:00:00Z", 1)));
+        resetProcessedAt();
+
+        clock.set(999);
+        task.put(Collections.singletonList(ack("e-1", "2024-05-01T10:00:00Z", 1)));
+        assertNull(processedAt("e-1"));
+
+        clock.set(1_000); // Expired
+        task.put(Collections.singletonList(ack("e-1", "2024-05-01T10:00:00Z", 1)));
+        assertEquals(Instant.parse("2024-05-01T10:00:00Z"), processedAt("e-1"));
+    }
+
+    @Test
+    public void trimsTheOldestIdsBeyondTheWindowSize() throws SQLException {
+        task.start(dedupeConfig(2, 60_000L));
+
+        task.put(Collections.singletonList(ack("e-1", "2024-05-01T10:00:00Z", 1)));
+        task.put(Collections.singletonList(ack("e-2", "2024-05-01T10:00:01Z", 2)));
+        task.put(Collections.singletonList(ack("e-3", "2024-05-01T10:00:02Z", 3)));
+        resetProcessedAt();
+
+        task.put(Arrays.asList(ack("e-1", "2024-05-01T10:00:00Z", 1), ack("e-2", "2024-05-01T10:00:01Z", 2)));
+
+        assertEquals(Instant.parse("2024-05-01T10:00:00Z"), processedAt("e-1"));
+        assertNull(processedAt("e-2"));
+    }
+
+    @Test
+    public void failedWritesAreNotRemembered() throws SQLException {
+        task.start(dedupeConfig(10, 60_000L));
+        try (Statement statement = db.createStatement()) {
+            statement.execute("ALTER TABLE Outbox RENAME TO Outbox_Moved");
+        }
+
+        assertThrows(RetriableException.class,
+                () -> task.put(Collections.singletonList(ack("e-1", "2024-05-01T10:00:00Z", 1))));
+
+        try (Statement statement = db.createStatement()) {
+            statement.execute("ALTER TABLE Outbox_Moved RENAME TO Outbox");
+        }
+        task.put(Collections.singletonList(ack("e-1", "2024-05-01T10:00:00Z", 1)));
+        assertEquals(Instant.parse("2024-05-01T10:00:00Z"), processedAt("e-1"));
+    }
+
+    private Map<String, String> dedupeConfig(int size, long windowMs) {
+        Map<String, String> props = config("values", 1, 0L);
+        props.put("dedupe.window.size", String.valueOf(size));
+        props.put("dedupe.window.ms", String.valueOf(windowMs));
+        props.put("retry.backoff.ms", "1");
+        return props;
+    }
+
+    private void resetProcessedAt() throws SQLException {
+        try (Statement statement = db.createStatement()) {
+            statement.execute("UPDATE Outbox SET ProcessedAt = NULL");
+        }
+    }
+
+    private Map<String, String> config(String style, int batchSize, long lingerMs) {
+        Map<String, String> props = new HashMap<>();
+        props.put("connection.url", url);
+        props.put("id.column.type", "VARCHAR(36)");
+        props.put("processed.at.column.type", "TIMESTAMP");
+        props.put("statement.style", style);
+        props.put("batch.size", String.valueOf(batchSize));
+        props.put("linger.ms", String.valueOf(lingerMs));
+        return props;
+    }
+
+    private static SinkRecord ack(String id, String processedAt, long offset) {
+        Struct value = new Struct(UPDATE_SCHEMA).put("Id", id).put("ProcessedAt", processedAt);
+        return new SinkRecord("outbox-acks", 0, null, null, UPDATE_SCHEMA, value, offset);
+    }
+
+    private Instant processedAt(String id) throws SQLException {
+        try (Statement statement = db.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT ProcessedAt FROM Outbox WHERE Id = '" + id + "'")) {
+            rows.next();
+            java.sql.Timestamp value = rows.getTimestamp(1, Calendar.getInstance(TimeZone.getTimeZone("UTC")));
+            return value != null ? value.toInstant() : null;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.twk.transforms;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.header.ConnectHeaders;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class RecordMatchesTest {
+
+    private static final Schema OUTBOX_SCHEMA = SchemaBuilder.struct().name("Outbox")
+            .field("PayloadType", Schema.OPTIONAL_STRING_SCHEMA)
+            .build();
+
+    private final RecordMatches<SourceRecord> predicate = new RecordMatches<>();
+
+    @After
+    public void close() {
+        predicate.close();
+    }
+
+    @Test
+    public void matchesFieldByExactPrefixAndRegex() {
+        Map<String, String> props = new HashMap<>();
+        props.put("field.name", "PayloadType");
+        props.put("field.values", "Heartbeat,Order*");
+        props.put("field.values.regex", "Payment(Captured|Refunded)");
+        predicate.configure(props);
+
+        assertTrue(predicate.test(record("outbox", "Heartbeat", null)));
+        assertTrue(predicate.test(record("outbox", "OrderCreated", null)));
+        assertTrue(predicate.test(record("outbox", "PaymentRefunded", null)));
+        assertFalse(predicate.test(record("outbox", "PaymentFailed", null)));
+        assertFalse(predicate.test(record("outbox", "Ord", null)));
+        assertFalse(predicate.test(record("outbox", null, null)));
+        assertFalse(predicate.test(new SourceRecord(null, null, "outbox", 0, null, null)));
+        assertTrue(predicate.test(new SourceRecord(null, null, "outbox", 0, null,
+                Collections.singletonMap("PayloadType", "OrderPaid"))));
+    }
+
+    @Test
+    public void keepsCommasInsideTheRegex() {
+        Map<String, String> props = new HashMap<>();
+        props.put("topics.regex", "outbox\\.dbo\\.[A-Za-z]{1,6}|audit");
+        props.put("field.name", "PayloadType");
+        props.put("field.values.regex", "Order.{1,3}");
+        predicate.configure(props);
+
+        assertTrue(predicate.test(record("outbox.dbo.Outbox", "OrderNew", null)));
+        assertTrue(predicate.test(record("audit", "Order1", null)));
+        assertFalse(predicate.test(record("outbox.dbo.Outbox", "OrderCreated", null)));
+        assertFalse(predicate.test(record("outbox.dbo.OutboxV2", "OrderNew", null)));
+    }
+
+    @Test
+    public void requiresEveryConfiguredCondition() {
+        Map<String, String> props = new HashMap<>();
+        props.put("topics", "outbox.dbo.*");
+        props.put("header.name", "payload-type");
+        props.put("header.values", "OrderCreated");
+        predicate.configure(props);
+
+        assertTrue(predicate.test(record("outbox.dbo.Outbox", null, "OrderCreated")));
+        assertFalse(predicate.test(record("outbox.dbo.Outbox", null, "OrderPaid")));
+        assertFalse(predicate.test(record("outbox.dbo.Outbox", null, null)));
+        assertFalse(predicate.test(record("heartbeats", null, "OrderCreated")));
+    }
+
+    @Test
+    public void headerPresenceAloneMatches() {
+        predicate.configure(Collections.singletonMap("header.name", "id"));
+
+        SourceRecord record = record("outbox", null, null);
+        assertFalse(predicate.test(record));
+        record.headers().addString("id", "e-1");
+        assertTrue(predicate.test(record));
+    }
+
+    @Test
+    public void prefixTrieMatchesLongestAndShortestPrefixes() {
+        RecordMatches.PrefixTrie trie = new RecordMatches.PrefixTrie();
+        for (String prefix : Arrays.asList("Order", "OrderLine", "Pay", "P")) {
+            trie.add(prefix);
+        }
+
+        assertTrue(trie.matchesPrefixOf("OrderLineAdded"));
+        assertTrue(trie.matchesPrefixOf("Order"));
+        assertTrue(trie.matchesPrefixOf("Pxyz"));
+        assertFalse(trie.matchesPrefixOf("Ord"));
+        assertFalse(trie.matchesPrefixOf("Customer"));
+    }
+
+    @Test
+    public void rejectsInvalidRegex() {
+        ConfigException e = assertThrows(ConfigException.class,
+                () -> predicate.configure(Collections.singletonMap("topics.regex", "orders((")));
+
+        assertTrue(e.getMessage().contains("topics.regex"));
+    }
+
+    @Test(expected = ConfigException.class)
+    public void rejectsValuesWithoutName() {
+        predicate.configure(Collections.singletonMap("field.values", "OrderCreated"));
+    }
+
+    private static SourceRecord record(String topic, String payloadType, String payloadTypeHeader) {
+        ConnectHeaders headers = new ConnectHeaders();
+        if (payloadTypeHeader != null) {
+            headers.addString("payload-type", payloadTypeHeader);
+        }
+        Struct value = new Struct(OUTBOX_SCHEMA).put("PayloadType", payloadType);
+        return new SourceRecord(null, null, topic, 0, null, null, OUTBOX_SCHEMA, value, 0L, headers);
+    }
+}
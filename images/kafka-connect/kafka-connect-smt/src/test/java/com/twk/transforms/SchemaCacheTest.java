@@ -0,0 +1,196 @@
+package com.twk.transforms;
+
+import org.apache.kafka.connect.errors.ConnectException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class SchemaCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    private volatile int nextId = 1;
+    private volatile boolean failing;
+
+    private SchemaCache cache;
+
+    @After
+    public void close() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void servesStaleSchemaWhileRefreshingInBackground() throws Exception {
+        cache = cache(1_000, 100, 1_000, 10);
+
+        assertEquals(1, cache.get("orders-value").id());
+        clock.set(999);
+        assertEquals(1, cache.get("orders-value").id());
+        assertEquals(1, loads.get());
+
+        nextId = 2;
+        clock.set(1_000);
+        assertEquals(1, cache.get("orders-value").id()); // Expired: stale value, refresh starts
+
+        awaitId("orders-value", 2);
+        assertEquals(2, loads.get());
+        assertEquals(2, cache.get("orders-value").id());
+    }
+
+    @Test
+    public void backoffDoublesUpToTheMaximum() {
+        cache = cache(0, 100, 300, 10);
+        failing = true;
+
+        assertThrows(ConnectException.class, () -> cache.get("orders-value"));
+        assertEquals(1, loads.get());
+
+        long at = 0;
+        for (long backoff : new long[]{100, 200, 300, 300}) {
+            int before = loads.get();
+            clock.set(at + backoff - 1);
+            assertThrows(ConnectException.class, () -> cache.get("orders-value"));
+            assertEquals("Fails fast inside the backoff", before, loads.get());
+
+            at += backoff;
+            clock.set(at);
+            assertThrows(ConnectException.class, () -> cache.get("orders-value"));
+            assertEquals(before + 1, loads.get());
+        }
+
+        failing = false;
+        clock.set(at + 300);
+        assertEquals(1, cache.get("orders-value").id());
+    }
+
+    @Test
+    public void concurrentMissesShareOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        cache = new SchemaCache((subject, previous) -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            release.await();
+            return new RegisteredSchema(subject, 1, 1, null, null);
+        }, 0, 100, 1_000, 10, schema -> { }, clock::get);
+
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            Future<RegisteredSchema> first = threads.submit(() -> cache.get("orders-value"));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            AtomicReference<Thread> waiter = new AtomicReference<>();
+            Future<RegisteredSchema> second = threads.submit(() -> {
+                waiter.set(Thread.currentThread());
+                return cache.get("orders-value");
+            });
+            while (waiter.get() == null || waiter.get().getState() != Thread.State.WAITING) {
+                Thread.sleep(1); // Parked on the first caller's in-flight load
+            }
+            release.countDown();
+
+            assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void seedsAreNotReportedUntilConfirmed() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<RegisteredSchema> changed = new CopyOnWriteArrayList<>();
+        cache = new SchemaCache((subject, previous) -> {
+            release.await();
+            return previous; // Unchanged in the registry
+        }, 0, 100, 1_000, 10, changed::add, clock::get);
+
+        RegisteredSchema seed = new RegisteredSchema("orders-value", 1, 1, null, null);
+        cache.seed(seed);
+        assertSame(seed, cache.get("orders-value"));
+        assertTrue(cache.schemas().isEmpty());
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (changed.isEmpty()) { // Reported after the entry is stored
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Seed was not confirmed");
+            }
+            Thread.sleep(1);
+        }
+        assertEquals(Collections.singletonList(seed), cache.schemas());
+        assertEquals(Collections.singletonList(seed), changed);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedSubject() {
+        cache = cache(0, 100, 1_000, 2);
+
+        cache.get("a");
+        clock.set(1);
+        cache.get("b");
+        clock.set(2);
+        cache.get("a");
+        clock.set(3);
+        cache.get("c");
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.getIfPresent("a"));
+        assertNull(cache.getIfPresent("b"));
+        assertNotNull(cache.getIfPresent("c"));
+    }
+
+    @Test
+    public void failedLoadsCountAgainstTheBound() {
+        cache = cache(0, 100, 1_000, 2);
+        failing = true;
+
+        for (int i = 0; i < 5; i++) {
+            String subject = "missing-" + i;
+            clock.set(i);
+            assertThrows(ConnectException.class, () -> cache.get(subject));
+        }
+
+        assertEquals(2, cache.size());
+    }
+
+    private SchemaCache cache(long ttlMs, long retryBackoffMs, long retryBackoffMaxMs, int maxSize) {
+        return new SchemaCache((subject, previous) -> {
+            loads.incrementAndGet();
+            if (failing) {
+                throw new IllegalStateException("Registry unavailable");
+            }
+            return new RegisteredSchema(subject, nextId, 1, null, null);
+        }, ttlMs, retryBackoffMs, retryBackoffMaxMs, maxSize, schema -> { }, clock::get);
+    }
+
+    private void awaitId(String subject, int id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.getIfPresent(subject).id() != id) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Background refresh did not load id " + id);
+            }
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.twk.transforms;
+
+import org.apache.kafka.connect.data.Date;
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.data.Time;
+import org.apache.kafka.connect.data.Timestamp;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class StructJsonWriterTest {
+
+    private static final Schema ADDRESS_SCHEMA = SchemaBuilder.struct().name("Address")
+            .field("Street", Schema.STRING_SCHEMA)
+            .field("Zip", Schema.OPTIONAL_STRING_SCHEMA)
+            .build();
+
+    private static final Schema TEMPORAL_SCHEMA = SchemaBuilder.struct().name("Temporal")
+            .field("Day", Date.SCHEMA)
+            .field("Cutoff", Time.SCHEMA)
+            .field("At", Timestamp.SCHEMA)
+            .build();
+
+    // 2024-01-01, 17:00 and 2024-01-01T00:00:00.123Z
+    private static final Struct TEMPORALS = new Struct(TEMPORAL_SCHEMA)
+            .put("Day", new java.util.Date(1704067200000L))
+            .put("Cutoff", new java.util.Date(61200000L))
+            .put("At", new java.util.Date(1704067200123L));
+
+    @Test
+    public void writesNestedStructsArraysAndMaps() {
+        Schema schema = SchemaBuilder.struct().name("Order")
+                .field("Id", Schema.STRING_SCHEMA)
+                .field("Lines", SchemaBuilder.array(Schema.INT32_SCHEMA).build())
+                .field("Home", ADDRESS_SCHEMA)
+                .field("Tags", SchemaBuilder.map(Schema.STRING_SCHEMA, Schema.INT64_SCHEMA).build())
+                .field("ByCode", SchemaBuilder.map(Schema.INT32_SCHEMA, Schema.STRING_SCHEMA).build())
+                .build();
+        Map<String, Long> tags = new LinkedHashMap<>();
+        tags.put("eu", 10L);
+        tags.put("us", 20L);
+        Struct order = new Struct(schema)
+                .put("Id", "o-1")
+                .put("Lines", Arrays.asList(1, 2))
+                .put("Home", new Struct(ADDRESS_SCHEMA).put("Street", "Main 1"))
+                .put("Tags", tags)
+                .put("ByCode", Collections.singletonMap(7, "seven"));
+
+        assertEquals("{\"Id\":\"o-1\",\"Lines\":[1,2],\"Home\":{\"Street\":\"Main 1\",\"Zip\":null},"
+                        + "\"Tags\":{\"eu\":10,\"us\":20},\"ByCode\":[{\"key\":7,\"value\":\"seven\"}]}",
+                StructJsonWriter.toJson(schema, order, false));
+    }
+
+    @Test
+    public void writesBytesAsBase64AndDecimalsAsNumbers() {
+        Schema schema = SchemaBuilder.struct().name("Blob")
+                .field("Raw", Schema.BYTES_SCHEMA)
+                .field("Buffer", Schema.BYTES_SCHEMA)
+                .field("Price", Decimal.schema(2))
+                .build();
+        ByteBuffer buffer = ByteBuffer.wrap("xhiy".getBytes(StandardCharsets.UTF_8), 1, 2); // Only "hi" is visible
+        Struct blob = new Struct(schema)
+                .put("Raw", "hi".getBytes(StandardCharsets.UTF_8))
+                .put("Buffer", buffer.slice())
+                .put("Price", new BigDecimal("12.30"));
+
+        assertEquals("{\"Raw\":\"aGk=\",\"Buffer\":\"aGk=\",\"Price\":12.30}", StructJsonWriter.toJson(schema, blob, false));
+    }
+
+    @Test
+    public void writesTemporalsAsEpochMillisByDefault() {
+        assertEquals("{\"Day\":1704067200000,\"Cutoff\":61200000,\"At\":1704067200123}",
+                StructJsonWriter.toJson(TEMPORAL_SCHEMA, TEMPORALS, false));
+    }
+
+    @Test
+    public void writesTemporalsAsIsoStringsWhenAsked() {
+        assertEquals("{\"Day\":\"2024-01-01\",\"Cutoff\":\"17:00\",\"At\":\"2024-01-01T00:00:00.123Z\"}",
+                StructJsonWriter.toJson(TEMPORAL_SCHEMA, TEMPORALS, true));
+    }
+
+    @Test
+    public void writesSchemalessValuesByJavaType() {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("Id", "o-1");
+        value.put("Count", 3);
+        value.put("Amount", 1.5);
+        value.put("Paid", true);
+        value.put("Lines", Arrays.asList("a", null));
+        value.put("At", new java.util.Date(1704067200123L));
+
+        assertEquals("{\"Id\":\"o-1\",\"Count\":3,\"Amount\":1.5,\"Paid\":true,\"Lines\":[\"a\",null],\"At\":1704067200123}",
+                StructJsonWriter.toJson(null, value, false));
+    }
+}
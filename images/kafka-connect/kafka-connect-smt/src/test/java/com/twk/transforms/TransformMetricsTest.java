@@ -0,0 +1,118 @@
+package com.twk.transforms;
+
+import org.apache.kafka.connect.header.ConnectHeaders;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TransformMetricsTest {
+
+    private static final String CONNECTOR = "metrics-test";
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    private final UpdateProcessedAt<SourceRecord> transform = new UpdateProcessedAt<>();
+
+    @After
+    public void close() {
+        transform.close();
+    }
+
+    @Test
+    public void percentilesStayWithinOneBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 10_000; nanos++) {
+            histogram.record(nanos * 1_000);
+        }
+
+        assertEquals(10_000, histogram.count());
+        assertEquals(10_000_000, histogram.max());
+        assertEquals(5_000_000, histogram.percentile(0.50), 5_000_000 * 0.125);
+        assertEquals(9_900_000, histogram.percentile(0.99), 9_900_000 * 0.125);
+        assertEquals(0, new LatencyHistogram().percentile(0.99));
+    }
+
+    @Test
+    public void oldLatenciesAgeOutOfTheWindow() {
+        AtomicLong clock = new AtomicLong();
+        LatencyHistogram histogram = new LatencyHistogram(60_000, clock::get); // 10 us slots
+
+        histogram.record(1_000_000);
+        clock.set(30_000);
+        histogram.record(1_000);
+        assertEquals(2, histogram.count());
+        assertEquals(1_000_000, histogram.max());
+
+        clock.set(60_000); // The first slot has left the window
+        assertEquals(1, histogram.count());
+        assertEquals(1_000, histogram.max());
+        assertEquals(1_000, histogram.percentile(0.99));
+
+        clock.set(90_000);
+        assertEquals(0, histogram.count());
+        assertEquals(0.0, histogram.mean(), 0.0);
+
+        histogram.record(2_000); // Recycles the slot recorded at 30 us
+        assertEquals(1, histogram.count());
+        assertEquals(2_000, histogram.max());
+    }
+
+    @Test
+    public void bucketBoundsRoundTrip() {
+        for (int index = 0; index < 400; index++) {
+            assertEquals(index, LatencyHistogram.index(LatencyHistogram.lowerBound(index)));
+        }
+    }
+
+    @Test
+    public void countsRecordsUnderConnectorName() throws Exception {
+        transform.configure(props());
+
+        transform.apply(record("e-1"));
+        transform.apply(record(null));
+
+        ObjectName name = new ObjectName("com.twk.transforms:type=UpdateProcessedAt,connector=" + CONNECTOR);
+        assertEquals(2L, server.getAttribute(name, "RecordsIn"));
+        assertEquals(1L, server.getAttribute(name, "RecordsOut"));
+        assertEquals(1L, server.getAttribute(name, "RecordsDropped"));
+        assertEquals(0L, server.getAttribute(name, "Errors"));
+
+        transform.close();
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void registersNothingByDefault() throws Exception {
+        transform.configure(Collections.singletonMap("metrics.connector", CONNECTOR));
+
+        transform.apply(record("e-1"));
+
+        assertTrue(server.queryNames(new ObjectName("com.twk.transforms:connector=" + CONNECTOR + ",*"), null).isEmpty());
+    }
+
+    private static Map<String, String> props() {
+        Map<String, String> props = new HashMap<>();
+        props.put("metrics.enabled", "true");
+        props.put("metrics.connector", CONNECTOR);
+        return props;
+    }
+
+    private static SourceRecord record(String id) {
+        ConnectHeaders headers = new ConnectHeaders();
+        if (id != null) {
+            headers.addString("id", id);
+        }
+        return new SourceRecord(null, null, "orders", 0, null, null, null, "{}", 0L, headers);
+    }
+}
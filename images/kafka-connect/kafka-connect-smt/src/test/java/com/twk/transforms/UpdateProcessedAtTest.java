@@ -0,0 +1,71 @@
+package com.twk.transforms;
+
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.header.ConnectHeaders;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class UpdateProcessedAtTest {
+
+    private final UpdateProcessedAt<SinkRecord> transform = new UpdateProcessedAt<>();
+
+    @Before
+    public void configure() {
+        transform.configure(Collections.emptyMap());
+    }
+
+    @After
+    public void close() {
+        transform.close();
+    }
+
+    @Test
+    public void buildsUpdateFromStringHeader() {
+        ConnectHeaders headers = new ConnectHeaders();
+        headers.addString("id", "e-1");
+
+        Instant before = Instant.now();
+        SinkRecord update = transform.apply(event(headers));
+
+        Struct value = (Struct) update.value();
+        assertEquals("e-1", value.getString("Id"));
+        Instant processedAt = Instant.parse(value.getString("ProcessedAt"));
+        assertFalse(processedAt.isBefore(before));
+        assertEquals("orders", update.topic());
+    }
+
+    @Test
+    public void decodesByteArrayHeaderAsUtf8() {
+        ConnectHeaders headers = new ConnectHeaders();
+        headers.add("id", "\u00e9-1".getBytes(StandardCharsets.UTF_8), Schema.BYTES_SCHEMA);
+
+        SinkRecord update = transform.apply(event(headers));
+
+        assertEquals("\u00e9-1", ((Struct) update.value()).getString("Id"));
+    }
+
+    @Test
+    public void dropsRecordsWithoutAnId() {
+        ConnectHeaders blank = new ConnectHeaders();
+        blank.addString("id", "  ");
+
+        assertNull(transform.apply(event(new ConnectHeaders())));
+        assertNull(transform.apply(event(blank)));
+    }
+
+    private static SinkRecord event(ConnectHeaders headers) {
+        return new SinkRecord("orders", 0, null, null, null, "{}", 0L, null, TimestampType.NO_TIMESTAMP_TYPE, headers);
+    }
+}